@@ -0,0 +1,75 @@
+package com.faceit.demo.cache;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Component;
+
+import com.faceit.demo.exception.InvalidRequestException;
+import com.faceit.demo.repo.SearchCriteriaParser;
+import com.faceit.demo.repo.UserSearchPlan;
+import com.faceit.demo.util.SpecSearchCriteria;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Bounded cache of compiled search plans keyed by normalized search string, so that
+ * repeated searches skip tokenizing and building their {@link Specification}.
+ * Hit, miss, eviction and size metrics are published under the "searchPlans" cache name.
+ */
+@Component
+public class SearchPlanCache {
+	
+	private static final String CACHE_NAME = "searchPlans";
+	
+	private final Cache<String, UserSearchPlan> cache;
+	
+	@Autowired
+	public SearchPlanCache(@Value("${user.search.plan-cache-size}") long maximumSize,
+			MeterRegistry meterRegistry) {
+		this.cache = Caffeine.newBuilder()
+				.maximumSize(maximumSize)
+				.recordStats()
+				.build();
+		CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+	}
+	
+	/**
+	 * Returns the compiled plan of a search string, compiling it on a miss. Malformed
+	 * search strings are never cached.
+	 * 
+	 * @param criteria search string
+	 * @return {@link UserSearchPlan} of the search string, or null if it has no criterion
+	 * @throws InvalidRequestException malformed search string
+	 */
+	public UserSearchPlan get(String criteria) throws InvalidRequestException {
+		return getNormalized(SearchCriteriaParser.normalize(criteria));
+	}
+	
+	/**
+	 * Returns the compiled plan of a search string already normalized with
+	 * {@link SearchCriteriaParser#normalize(String)}, for callers that also key other
+	 * lookups by it.
+	 * 
+	 * @param normalized normalized search string
+	 * @return {@link UserSearchPlan} of the search string, or null if it has no criterion
+	 * @throws InvalidRequestException malformed search string
+	 */
+	public UserSearchPlan getNormalized(String normalized) throws InvalidRequestException {
+		if (normalized.isEmpty()) {
+			return null;
+		}
+		return cache.get(normalized, SearchPlanCache::compile);
+	}
+	
+	private static UserSearchPlan compile(String normalized) {
+		List<SpecSearchCriteria> criteria = SearchCriteriaParser.parse(normalized);
+		return new UserSearchPlan(criteria);
+	}
+
+}
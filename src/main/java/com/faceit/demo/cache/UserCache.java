@@ -0,0 +1,73 @@
+package com.faceit.demo.cache;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.faceit.demo.entity.User;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Bounded, in-process read-through cache of {@link User} entities keyed by ID.
+ * Hit, miss, eviction and size metrics are published under the "users" cache name.
+ */
+@Component
+public class UserCache {
+	
+	private static final String CACHE_NAME = "users";
+	
+	private final Cache<Long, User> cache;
+	
+	@Autowired
+	public UserCache(@Value("${user.cache.maximum-size}") long maximumSize,
+			@Value("${user.cache.expire-after-write-seconds}") long expireAfterWriteSeconds,
+			MeterRegistry meterRegistry) {
+		this.cache = Caffeine.newBuilder()
+				.maximumSize(maximumSize)
+				.expireAfterWrite(expireAfterWriteSeconds, TimeUnit.SECONDS)
+				.recordStats()
+				.build();
+		CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+	}
+	
+	/**
+	 * Returns the cached {@link User}, loading it on a miss. Concurrent misses on the
+	 * same ID wait for a single load. Nothing is cached when the loader returns null.
+	 * 
+	 * @param id      ID of target user
+	 * @param loader  loads the user from the repository, returning null if not found
+	 * @return {@link User} with provided ID, or null if not found
+	 */
+	public User get(long id, Function<Long, User> loader) {
+		return cache.get(id, loader);
+	}
+	
+	/**
+	 * Returns the cached {@link User} without loading it.
+	 * 
+	 * @param id  ID of target user
+	 * @return {@link User} with provided ID, or null if not cached
+	 */
+	public User getIfPresent(long id) {
+		return cache.getIfPresent(id);
+	}
+	
+	/**
+	 * Removes the cached {@link User}. A load of the same ID that is in progress is
+	 * waited for and then discarded, so callers that evict after their write has been
+	 * committed never leave an older copy behind.
+	 * 
+	 * @param id  ID of target user
+	 */
+	public void evict(long id) {
+		cache.invalidate(id);
+	}
+
+}
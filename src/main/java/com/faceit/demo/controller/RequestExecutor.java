@@ -0,0 +1,130 @@
+package com.faceit.demo.controller;
+
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import com.faceit.demo.exception.ServiceUnavailableException;
+import com.faceit.demo.util.VirtualThreads;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+
+/**
+ * Runs the blocking part of {@link UserController} requests. With user.async.enabled,
+ * requests run on a bounded pool of their own, which frees the servlet thread while
+ * the database and Kafka calls are pending; once the pool and its queue are full,
+ * requests are rejected with 503 instead of queueing without bound. Pool size, queue
+ * depth and completions are published as "executor" metrics tagged name=user.requests,
+ * and rejections as executor.rejected. Otherwise requests run on the servlet thread.
+ *
+ * With user.threads.virtual as well, each request runs on a virtual thread of its own
+ * and at most pool-size + queue-capacity requests are in flight at once; the number
+ * in flight is published as executor.active.
+ */
+@Component
+public class RequestExecutor implements DisposableBean {
+	
+	private static final String EXECUTOR_NAME = "user.requests";
+	private static final String THREAD_PREFIX = "user-request-";
+	private static final String ERROR_REJECTED = "Too many requests in progress, retry later.";
+	
+	private final ExecutorService executor;
+	private final Semaphore permits;
+	private final Counter rejected;
+	
+	@Autowired
+	public RequestExecutor(@Value("${user.async.enabled}") boolean enabled,
+			@Value("${user.threads.virtual}") boolean virtual,
+			@Value("${user.async.pool-size}") int poolSize,
+			@Value("${user.async.queue-capacity}") int queueCapacity,
+			MeterRegistry meterRegistry) {
+		if (!enabled) {
+			this.executor = null;
+			this.permits = null;
+			this.rejected = null;
+			return;
+		}
+		if (virtual) {
+			int maxInFlight = poolSize + queueCapacity;
+			executor = VirtualThreads.newVirtualThreadPerTaskExecutor();
+			permits = new Semaphore(maxInFlight);
+			Gauge.builder("executor.active", permits, p -> maxInFlight - p.availablePermits())
+					.tag("name", EXECUTOR_NAME)
+					.description("The number of requests running on virtual threads")
+					.register(meterRegistry);
+		} else {
+			ThreadPoolTaskExecutor pool = new ThreadPoolTaskExecutor();
+			pool.setCorePoolSize(poolSize);
+			pool.setMaxPoolSize(poolSize);
+			pool.setQueueCapacity(queueCapacity);
+			pool.setThreadNamePrefix(THREAD_PREFIX);
+			// The default AbortPolicy rejects tasks once the queue is full
+			pool.initialize();
+			executor = pool.getThreadPoolExecutor();
+			permits = null;
+			new ExecutorServiceMetrics(executor, EXECUTOR_NAME, Collections.emptyList()).bindTo(meterRegistry);
+		}
+		rejected = Counter.builder("executor.rejected")
+				.tag("name", EXECUTOR_NAME)
+				.description("The number of requests rejected because the executor was saturated")
+				.register(meterRegistry);
+	}
+
+	/**
+	 * Runs the task on the request pool, or on the calling thread if asynchronous request
+	 * handling is disabled.
+	 *
+	 * @param task blocking part of a request
+	 * @return the result of the task, completed exceptionally if the task fails
+	 * @throws ServiceUnavailableException the request pool and its queue are full
+	 */
+	public <T> CompletableFuture<T> submit(Supplier<T> task) throws ServiceUnavailableException {
+		if (executor == null) {
+			return CompletableFuture.completedFuture(task.get());
+		}
+		if (permits != null && !permits.tryAcquire()) {
+			rejected.increment();
+			throw new ServiceUnavailableException(ERROR_REJECTED);
+		}
+		try {
+			if (permits == null) {
+				return CompletableFuture.supplyAsync(task, executor);
+			}
+			// Release the permit before the future completes, so a caller that has seen
+			// the result can submit again
+			return CompletableFuture.supplyAsync(() -> {
+				try {
+					return task.get();
+				} finally {
+					permits.release();
+				}
+			}, executor);
+		} catch (RejectedExecutionException ex) {
+			if (permits != null) {
+				permits.release();
+			}
+			rejected.increment();
+			throw new ServiceUnavailableException(ERROR_REJECTED);
+		}
+	}
+
+	@Override
+	public void destroy() {
+		if (executor != null) {
+			executor.shutdown();
+		}
+	}
+
+}
@@ -1,20 +1,43 @@
 package com.faceit.demo.controller;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.http.HttpServletResponse;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.faceit.demo.entity.User;
 import com.faceit.demo.service.UserService;
+import com.faceit.demo.util.BulkItemResult;
+import com.faceit.demo.util.CursorPage;
+import com.faceit.demo.util.EntityTags;
+import com.faceit.demo.util.UserBatch;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -29,10 +52,22 @@ public class UserController {
 	
 	private static final String KEY_ID = "id";
     private static final String DELETE_SUCCESS_MSG = "Deleted Successfully.";
+    private static final String DEFAULT_PAGE_LIMIT = "50";
+    private static final String NDJSON = "application/x-ndjson";
+    private static final String NDJSON_SEPARATOR = "\n";
+    private static final String FIELDS_DESCRIPTION = "Comma-separated list of fields to return, "
+    		+ "e.g. id,nickName,country. Only these columns are read from the database. "
+    		+ "Omit to return complete users.";
 	
 	@Autowired
 	UserService userService;
 	
+	@Autowired
+	ObjectMapper objectMapper;
+	
+	@Autowired
+	RequestExecutor requestExecutor;
+	
 	/**
      * To create a {@link User}.
      *
@@ -43,39 +78,143 @@ public class UserController {
 	        @ApiResponse(responseCode = "200", description = "User created"),
 	        @ApiResponse(responseCode = "406", description = "User not created") })
     @PostMapping("/create")
-    public ResponseEntity<User> createUser(@RequestBody User user) {
-    	User createdUser = userService.create(user);
-    	
-        return new ResponseEntity<User>(createdUser, HttpStatus.CREATED);
+    public CompletableFuture<ResponseEntity<User>> createUser(@RequestBody User user) {
+    	return requestExecutor.submit(() -> {
+    		User createdUser = userService.create(user);
+    		
+    		return new ResponseEntity<User>(createdUser, HttpStatus.CREATED);
+    	});
     };
     
     /**
      * To return all {@link User} entities.
      * 
-     * TODO: To make this end-point scalable, one should use paging techniques
-     * to ensure we don't return too many records as User database grows.
+     * This loads the complete User repository in a single response, so it is refused
+     * with 400 once the repository holds more than user.list-all.max-size users.
+     * 
+     * @param  fields  optional comma-separated list of fields to return, e.g. id,nickName,country
+     * @deprecated page through the users with /list, or stream them with /export
      */
-    @Operation(summary = "List all users")
+    @Deprecated
+    @Operation(summary = "List all users", deprecated = true,
+    		description = "Refused once there are more than user.list-all.max-size users. "
+    				+ "Use /user/list or /user/export instead.")
+    @ApiResponses(value = { 
+            @ApiResponse(responseCode = "200", description = "Users returned"),
+            @ApiResponse(responseCode = "400", description = "Unknown field, or too many users to list"),
+            @ApiResponse(responseCode = "404", description = "No user") })
     @GetMapping("/listAll")
-    public ResponseEntity<Iterable<User>> findAll() {
-    	Iterable<User> userList = userService.findAll();
-    	
-    	return new ResponseEntity<Iterable<User>>(userList, HttpStatus.OK);
+    public CompletableFuture<ResponseEntity<Iterable<?>>> findAll(
+    		@Parameter(description=FIELDS_DESCRIPTION, required=false)
+    		@RequestParam(value = "fields", required = false) String fields) {
+    	return requestExecutor.submit(() -> {
+    		Iterable<?> userList = (fields == null) ? userService.findAll() : userService.findAll(fields);
+    		
+    		return new ResponseEntity<Iterable<?>>(userList, HttpStatus.OK);
+    	});
     };
     
+    /**
+     * To return one page of {@link User} entities, ordered by ID.
+     * 
+     * @param  after  opaque cursor taken from nextCursor of the previous page
+     * @param  limit  maximum number of users to return
+     * @return        a {@link CursorPage} holding the users and the cursor of the next page
+     */
+    @Operation(summary = "List users one page at a time")
+    @ApiResponses(value = { 
+            @ApiResponse(responseCode = "200", description = "Page returned"),
+            @ApiResponse(responseCode = "400", description = "Invalid page cursor") })
+    @GetMapping("/list")
+    public CompletableFuture<ResponseEntity<CursorPage<User>>> findPage(
+    		@Parameter(description="Opaque cursor returned as nextCursor by the previous page. "
+    				+ "Omit to get the first page.", required=false)
+    		@RequestParam(value = "after", required = false) String after,
+    		@Parameter(description="Maximum number of users to return, capped at 500.", required=false)
+    		@RequestParam(value = "limit", defaultValue = DEFAULT_PAGE_LIMIT) int limit) {
+    	return requestExecutor.submit(() ->
+    			new ResponseEntity<CursorPage<User>>(userService.findPage(after, limit), HttpStatus.OK));
+    }
+    
+    /**
+     * To export all {@link User} entities as newline-delimited JSON, one user per line.
+     * 
+     * Users are written to the response as they are read from the repository, so memory
+     * use stays constant regardless of the size of the User repository.
+     *
+     * @param  response  response the users are streamed to
+     */
+    @Operation(summary = "Export all users as newline-delimited JSON")
+    @GetMapping(value = "/export", produces = NDJSON)
+    public void exportUsers(HttpServletResponse response) throws IOException {
+    	response.setContentType(NDJSON);
+    	response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+    	
+    	// Let the generator buffer fill up rather than flushing the response after every user
+    	ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    	AtomicLong exported = new AtomicLong();
+    	try (JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+    		generator.setRootValueSeparator(new SerializedString(NDJSON_SEPARATOR));
+    		userService.exportAll(user -> {
+    			try {
+    				writer.writeValue(generator, user);
+    				exported.incrementAndGet();
+    			} catch (IOException ex) {
+    				throw new UncheckedIOException(ex);
+    			}
+    		});
+    		if (exported.get() > 0) {
+    			generator.writeRaw(NDJSON_SEPARATOR);
+    		}
+    	}
+    }
+    
     /**
      * To find a specific {@link User} entity by its ID.
      *
+     * The version of the user is returned as ETag, so that a request with a matching
+     * If-None-Match header is answered with 304 Not Modified and no body.
+     *
      * @param  id   unique identifier for the {@link User} entity
      * @return      a {@link User} entity if found
      */
     @Operation(summary = "Finds a user by userId")
     @ApiResponses(value = { 
             @ApiResponse(responseCode = "200", description = "User found"),
+            @ApiResponse(responseCode = "304", description = "User not modified"),
             @ApiResponse(responseCode = "404", description = "User not found") })
     @GetMapping("/find/id/{id}")
-    public ResponseEntity<User> findById(@PathVariable(KEY_ID) long id) {
-        return new ResponseEntity<User>(userService.findById(id), HttpStatus.OK);
+    public CompletableFuture<ResponseEntity<User>> findById(@PathVariable(KEY_ID) long id) {
+        return requestExecutor.submit(() -> withETag(userService.findById(id)));
+    }
+    
+    /**
+     * To find many {@link User} entities by ID in one request, e.g. the players of a lobby.
+     *
+     * @param  ids  IDs of target users, in the order the users are to be returned
+     * @return      a {@link UserBatch} of the users found and the IDs that match no user
+     */
+    @Operation(summary = "Finds many users by userId")
+    @ApiResponses(value = { 
+            @ApiResponse(responseCode = "200", description = "Lookup processed, see users and missingIds"),
+            @ApiResponse(responseCode = "400", description = "No IDs, too many IDs or a null ID") })
+    @PostMapping("/find/ids")
+    public CompletableFuture<ResponseEntity<UserBatch>> findAllById(@RequestBody List<Long> ids) {
+        return requestExecutor.submit(() -> new ResponseEntity<UserBatch>(userService.findAllById(ids), HttpStatus.OK));
+    }
+    
+    /**
+     * To find many {@link User} entities by ID in one request, with the IDs in the URL.
+     *
+     * @param  ids  comma-separated IDs of target users, e.g. 1,7,3
+     * @return      a {@link UserBatch} of the users found and the IDs that match no user
+     */
+    @Operation(summary = "Finds many users by userId")
+    @GetMapping("/find/ids")
+    public CompletableFuture<ResponseEntity<UserBatch>> findAllByIdParam(
+    		@Parameter(description="Comma-separated IDs of the users to find, e.g. 1,7,3", required=true)
+    		@RequestParam(value = "ids") List<Long> ids) {
+        return findAllById(ids);
     }
     
     /**
@@ -88,25 +227,62 @@ public class UserController {
         @ApiResponse(responseCode = "202", description = "Operation accepted and executed"),
         @ApiResponse(responseCode = "404", description = "Contact not found") })
     @DeleteMapping("/remove/{id}")
-    public ResponseEntity<String> deleteById(
+    public CompletableFuture<ResponseEntity<String>> deleteById(
     		@Parameter(description="Id of the contact to be delete. Cannot be empty.", required=true)
     		@PathVariable(KEY_ID) long id) {
-    	userService.removeById(id);
-        return new ResponseEntity<String>(DELETE_SUCCESS_MSG, HttpStatus.ACCEPTED);
+    	return requestExecutor.submit(() -> {
+    		userService.removeById(id);
+    		return new ResponseEntity<String>(DELETE_SUCCESS_MSG, HttpStatus.ACCEPTED);
+    	});
     }
     
     /**
      * To update a {@link User}.
      *
-     * @param  user   {@link User} entity
+     * @param  user     {@link User} entity
+     * @param  ifMatch  optional ETag of the user as last read; the update only applies if
+     *                  the user has not been modified since
      */
     @Operation(summary = "Updates a user")
     @ApiResponses(value = { 
             @ApiResponse(responseCode = "200", description = "User updated"),
-            @ApiResponse(responseCode = "404", description = "User not found") })
+            @ApiResponse(responseCode = "404", description = "User not found"),
+            @ApiResponse(responseCode = "412", description = "User modified since it was read") })
     @PutMapping("/update")
-    public ResponseEntity<User> updateUser(@RequestBody User user) {
-        return new ResponseEntity<User>(userService.update(user), HttpStatus.OK);
+    public CompletableFuture<ResponseEntity<User>> updateUser(@RequestBody User user,
+    		@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+    	List<Long> expectedVersions = EntityTags.parseIfMatch(ifMatch);
+        return requestExecutor.submit(() -> withETag(userService.update(user, expectedVersions)));
+    }
+    
+    /**
+     * To update only some fields of a {@link User}.
+     *
+     * @param  id       ID of target user
+     * @param  changes  field name to new value, e.g. {"country": "England"}
+     * @param  ifMatch  optional ETag of the user as last read; the update only applies if
+     *                  the user has not been modified since
+     */
+    @Operation(summary = "Updates some fields of a user")
+    @ApiResponses(value = { 
+            @ApiResponse(responseCode = "200", description = "User updated"),
+            @ApiResponse(responseCode = "400", description = "Field unknown or cannot be changed"),
+            @ApiResponse(responseCode = "404", description = "User not found"),
+            @ApiResponse(responseCode = "412", description = "User modified since it was read") })
+    @PatchMapping("/update/{id}")
+    public CompletableFuture<ResponseEntity<User>> patchUser(@PathVariable(KEY_ID) long id,
+    		@RequestBody Map<String, Object> changes,
+    		@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+    	List<Long> expectedVersions = EntityTags.parseIfMatch(ifMatch);
+        return requestExecutor.submit(() -> withETag(userService.patch(id, changes, expectedVersions)));
+    }
+    
+    private static ResponseEntity<User> withETag(User user) {
+    	ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+    	if (user.getVersion() != null) {
+    		response.eTag(String.valueOf(user.getVersion()));
+    	}
+    	return response.body(user);
     }
 	
     /**
@@ -115,21 +291,78 @@ public class UserController {
      * @param critera a comma-separated search string with following format: 
 	 * {key}{operator}{value}. e.g. firstName:Joe,country!England. Which means: firstName 
 	 * EQUALS Joe, AND country IS-NOT England. Available {operators} are - ":" = EQUALS;
-	 *  "!" = IS-NOT;
+	 *  "!" = IS-NOT; "^" = STARTS-WITH; "~" = CONTAINS; ">" = AT-LEAST; "<" = AT-MOST;
+	 *  "@" = IN, with values separated by ";". Criteria separated by "|" instead of ","
+	 *  are OR-ed: country:England|country:Spain,firstName^Jo. Searchable keys are id,
+	 *  firstName, lastName, nickName, email and country.
 	 * 					
+	 * @param fields optional comma-separated list of fields to return, e.g. id,nickName,country
 	 * @return an {@link Iterable} of {@link User} entities
      */
     @Operation(summary = "To search a list of User entities using search criteria")
     @GetMapping("/search")
-    public ResponseEntity<Iterable<User>> searchUsers(
+    public CompletableFuture<ResponseEntity<Iterable<?>>> searchUsers(
     		@Parameter(description="a comma-separated search string with following format:"
     				+ " {key}{operator}{value}. e.g. firstName:Joe,country!England. "
     				+ " Which means: firstName EQUALS Joe, AND country IS-NOT England. "
-    				+ "Available {operators} are - \":\" = EQUALS;\"!\" = IS-NOT;", required=false)
-    		@RequestParam(value = "criteria") String criteria) {
-    	Iterable<User> userList = userService.search(criteria);
-        return new ResponseEntity<Iterable<User>>(userList, HttpStatus.OK);
+    				+ "Available {operators} are - \":\" = EQUALS;\"!\" = IS-NOT;\"^\" = STARTS-WITH;"
+    				+ "\"~\" = CONTAINS;\">\" = AT-LEAST;\"<\" = AT-MOST;\"@\" = IN (values separated by \";\"). "
+    				+ "Criteria separated by \"|\" instead of \",\" are OR-ed.", required=false)
+    		@RequestParam(value = "criteria") String criteria,
+    		@Parameter(description=FIELDS_DESCRIPTION, required=false)
+    		@RequestParam(value = "fields", required = false) String fields) {
+    	return requestExecutor.submit(() -> {
+    		Iterable<?> userList = (fields == null) ? userService.search(criteria) : userService.search(criteria, fields);
+    		return new ResponseEntity<Iterable<?>>(userList, HttpStatus.OK);
+    	});
+    }
+    
+    /**
+     * To create many {@link User} entities in one request.
+     *
+     * @param  users  {@link User} entities, without IDs
+     * @return        a {@link BulkItemResult} per user, in request order
+     */
+    @Operation(summary = "Create many users")
+    @ApiResponses(value = { 
+	        @ApiResponse(responseCode = "200", description = "Bulk request processed, see result of each user"),
+	        @ApiResponse(responseCode = "400", description = "Empty or oversized bulk request") })
+    @PostMapping("/bulk/create")
+    public CompletableFuture<ResponseEntity<List<BulkItemResult>>> createUsers(@RequestBody List<User> users) {
+    	return requestExecutor.submit(() ->
+    			new ResponseEntity<List<BulkItemResult>>(userService.createAll(users), HttpStatus.OK));
+    }
+    
+    /**
+     * To update many {@link User} entities in one request.
+     *
+     * @param  users  {@link User} entities, with IDs
+     * @return        a {@link BulkItemResult} per user, in request order
+     */
+    @Operation(summary = "Update many users")
+    @ApiResponses(value = { 
+	        @ApiResponse(responseCode = "200", description = "Bulk request processed, see result of each user"),
+	        @ApiResponse(responseCode = "400", description = "Empty or oversized bulk request") })
+    @PutMapping("/bulk/update")
+    public CompletableFuture<ResponseEntity<List<BulkItemResult>>> updateUsers(@RequestBody List<User> users) {
+    	return requestExecutor.submit(() ->
+    			new ResponseEntity<List<BulkItemResult>>(userService.updateAll(users), HttpStatus.OK));
+    }
+    
+    /**
+     * To remove many {@link User} entities in one request.
+     *
+     * @param  ids  unique identifiers of the {@link User} entities
+     * @return      a {@link BulkItemResult} per ID, in request order
+     */
+    @Operation(summary = "Delete many users")
+    @ApiResponses(value = { 
+	        @ApiResponse(responseCode = "200", description = "Bulk request processed, see result of each ID"),
+	        @ApiResponse(responseCode = "400", description = "Empty or oversized bulk request") })
+    @PostMapping("/bulk/remove")
+    public CompletableFuture<ResponseEntity<List<BulkItemResult>>> deleteUsers(@RequestBody List<Long> ids) {
+    	return requestExecutor.submit(() ->
+    			new ResponseEntity<List<BulkItemResult>>(userService.removeAllById(ids), HttpStatus.OK));
     }
-	
 
 }
@@ -0,0 +1,26 @@
+package com.faceit.demo.controller;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.faceit.demo.util.VirtualThreads;
+
+/**
+ * Runs Tomcat request handling on virtual threads, enabled by user.threads.virtual=true
+ * on Java 21 or later. Each request then gets a virtual thread of its own, which is
+ * unmounted from its carrier thread while it blocks on JDBC or Kafka, so the number of
+ * concurrent requests is bounded by server.tomcat.max-connections rather than by
+ * server.tomcat.max-threads. Database concurrency stays bounded by the JDBC pool.
+ */
+@Configuration
+@ConditionalOnProperty(name = "user.threads.virtual", havingValue = "true")
+public class VirtualThreadWebConfig {
+
+	@Bean
+	public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+		return protocolHandler -> protocolHandler.setExecutor(VirtualThreads.newVirtualThreadPerTaskExecutor());
+	}
+
+}
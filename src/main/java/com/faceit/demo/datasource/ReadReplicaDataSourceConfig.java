@@ -0,0 +1,82 @@
+package com.faceit.demo.datasource;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Configuration of read-replica routing, enabled by listing the JDBC URLs of the
+ * replicas in user.datasource.replica-urls. Replicas share the driver and credentials
+ * of the primary, which stays configured by the spring.datasource properties.
+ * Read-only transactions are served by the replicas, and may therefore not yet see
+ * writes committed on the primary.
+ */
+@Configuration
+@ConditionalOnProperty(name = "user.datasource.replica-urls")
+public class ReadReplicaDataSourceConfig {
+	
+	private static final String REPLICA_POOL_NAME = "replica-";
+	
+	@Value("${user.datasource.replica-urls}")
+	private String[] REPLICA_URLS;
+	
+	@Value("${user.datasource.pool-size}")
+	private int POOL_SIZE;
+	
+	private ReadReplicaRoutingDataSource routingDataSource;
+	
+	/*
+	 * The pools are not beans of their own: Spring Boot initializes every DataSource
+	 * bean against the primary DataSource bean, which would then be a circular reference.
+	 * Their hikaricp.* metrics are therefore bound here rather than by Spring Boot.
+	 */
+	@Bean
+	@Primary
+	public DataSource dataSource(DataSourceProperties properties, Environment environment,
+			ObjectProvider<MeterRegistry> meterRegistry) {
+		HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+		Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+		meterRegistry.ifAvailable(primary::setMetricRegistry);
+		List<DataSource> replicas = new ArrayList<>(REPLICA_URLS.length);
+		for (String url : REPLICA_URLS) {
+			HikariDataSource replica = properties.initializeDataSourceBuilder()
+					.type(HikariDataSource.class)
+					.url(url.trim())
+					.build();
+			replica.setPoolName(REPLICA_POOL_NAME + replicas.size());
+			replica.setReadOnly(true);
+			replica.setMaximumPoolSize(POOL_SIZE);
+			meterRegistry.ifAvailable(replica::setMetricRegistry);
+			replicas.add(replica);
+		}
+		routingDataSource = new ReadReplicaRoutingDataSource(primary, replicas);
+		return new LazyConnectionDataSourceProxy(routingDataSource);
+	}
+	
+	@PreDestroy
+	public void close() throws IOException {
+		if (routingDataSource != null) {
+			routingDataSource.close();
+		}
+	}
+
+}
@@ -0,0 +1,69 @@
+package com.faceit.demo.datasource;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Routes connections of read-only transactions to the read replicas, in round-robin
+ * order, and every other connection to the primary.
+ * 
+ * The routing decision is taken when the connection is obtained, so this must be
+ * wrapped in a {@link LazyConnectionDataSourceProxy}: transaction managers obtain
+ * their connection before the transaction is marked read-only, and the proxy defers
+ * fetching the actual connection to the first statement.
+ */
+public class ReadReplicaRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+	
+	private static final String PRIMARY = "primary";
+	
+	private final DataSource primary;
+	private final List<DataSource> replicas;
+	private final AtomicInteger nextReplica = new AtomicInteger();
+	
+	public ReadReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas) {
+		this.primary = primary;
+		this.replicas = replicas;
+		Map<Object, Object> targets = new HashMap<>();
+		targets.put(PRIMARY, primary);
+		for (int i = 0; i < replicas.size(); i++) {
+			targets.put(i, replicas.get(i));
+		}
+		setTargetDataSources(targets);
+		setDefaultTargetDataSource(primary);
+		afterPropertiesSet();
+	}
+
+	@Override
+	protected Object determineCurrentLookupKey() {
+		if (replicas.isEmpty() || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+			return PRIMARY;
+		}
+		return Math.floorMod(nextReplica.getAndIncrement(), replicas.size());
+	}
+	
+	/**
+	 * Closes the pools of the primary and the replicas.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (primary instanceof Closeable) {
+			((Closeable) primary).close();
+		}
+		for (DataSource replica : replicas) {
+			if (replica instanceof Closeable) {
+				((Closeable) replica).close();
+			}
+		}
+	}
+
+}
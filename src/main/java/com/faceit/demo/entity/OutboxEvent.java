@@ -0,0 +1,77 @@
+package com.faceit.demo.entity;
+
+import java.time.Instant;
+
+import javax.persistence.*;
+
+/**
+ * An event message waiting to be relayed to Kafka. Rows are written in the same
+ * transaction as the {@link User} change they describe, claimed by a relay until
+ * claimedUntil while it sends them, and deleted once the broker has acknowledged them.
+ * They are relayed in sequenceNumber order, which the database assigns on insert.
+ */
+@Entity
+public class OutboxEvent {
+	
+	@Id
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "outbox_event_seq")
+	@SequenceGenerator(name = "outbox_event_seq", sequenceName = "outbox_event_seq", allocationSize = 50)
+	private long id;
+	private long aggregateId;
+	// Mapped as a plain binary column (bytea) rather than a @Lob, which PostgreSQL
+	// would store out of line as a large object
+	private byte[] payload;
+	// Drawn from a database sequence on insert, see V4__add_outbox_event_sequence_number
+	@Column(insertable = false, updatable = false)
+	private long sequenceNumber;
+	private Instant claimedUntil;
+	
+	public OutboxEvent() {};
+	
+	public OutboxEvent(long aggregateId, byte[] payload) {
+		super();
+		this.aggregateId = aggregateId;
+		this.payload = payload;
+	}
+
+	public long getId() {
+		return id;
+	}
+
+	public void setId(long id) {
+		this.id = id;
+	}
+
+	public long getAggregateId() {
+		return aggregateId;
+	}
+
+	public void setAggregateId(long aggregateId) {
+		this.aggregateId = aggregateId;
+	}
+
+	public byte[] getPayload() {
+		return payload;
+	}
+
+	public void setPayload(byte[] payload) {
+		this.payload = payload;
+	}
+
+	/**
+	 * @return the position of the event in the outbox, only set on events loaded from
+	 *         the database
+	 */
+	public long getSequenceNumber() {
+		return sequenceNumber;
+	}
+
+	public Instant getClaimedUntil() {
+		return claimedUntil;
+	}
+
+	public void setClaimedUntil(Instant claimedUntil) {
+		this.claimedUntil = claimedUntil;
+	}
+	
+}
@@ -3,10 +3,22 @@ package com.faceit.demo.entity;
 import javax.persistence.*;
 
 @Entity
+@Table(name = "users", indexes = {
+		@Index(name = "idx_user_country", columnList = "country"),
+		@Index(name = "idx_user_last_name", columnList = "lastName"),
+		@Index(name = "idx_user_first_name", columnList = "firstName")
+	}, uniqueConstraints = {
+		// Unique constraints are backed by indexes, which also serve email and nickName searches
+		@UniqueConstraint(name = "uk_user_email", columnNames = "email"),
+		@UniqueConstraint(name = "uk_user_nick_name", columnNames = "nickName")
+	})
 public class User {
 	
 	@Id
-	@GeneratedValue
+	// A pooled sequence hands out IDs without a round trip per insert, which lets
+	// Hibernate group inserts into JDBC batches (IDENTITY would disable batching).
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_seq")
+	@SequenceGenerator(name = "user_seq", sequenceName = "user_seq", allocationSize = 50)
 	private long id;
 	private String firstName;
 	private String lastName;
@@ -14,6 +26,10 @@ public class User {
 	private String password;
 	private String email;
 	private String country;
+	// Incremented by every update; exposed as the ETag of the user. Null while unknown,
+	// e.g. on users created from a request body
+	@Version
+	private Long version;
 	
 	public User() {};
 	
@@ -29,6 +45,14 @@ public class User {
 		this.country = country;
 	}
 	
+	/**
+	 * Copies all fields of the user, including its ID and version.
+	 */
+	public User(User user) {
+		this(user.id, user.firstName, user.lastName, user.nickName, user.password, user.email, user.country);
+		this.version = user.version;
+	}
+	
 	public User(String firstName, String lastName, String nickName,
 			String password, String email, String country) {
 		super();
@@ -96,4 +120,12 @@ public class User {
 		this.country = country;
 	}
 	
+	public Long getVersion() {
+		return version;
+	}
+
+	public void setVersion(Long version) {
+		this.version = version;
+	}
+	
 }
@@ -0,0 +1,218 @@
+package com.faceit.demo.event;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import com.faceit.demo.entity.User;
+
+/**
+ * Compact binary event format. Each message follows this schema:
+ * 
+ * <pre>
+ * UserEvent {
+ *   magic      byte    0xB1, never the first byte of a JSON message
+ *   version    byte    schema version, currently 1
+ *   event      byte    {@link Events#code}
+ *   userId     varint
+ *   hasUser    byte    1 if the fields below follow, 0 if the user is identified by ID alone
+ *   firstName  string
+ *   lastName   string
+ *   nickName   string
+ *   password   string
+ *   email      string
+ *   country    string
+ * }
+ * varint  unsigned LEB128, 7 bits per byte, low bits first
+ * string  varint of (UTF-8 length + 1), 0 meaning null, followed by the UTF-8 bytes
+ * </pre>
+ * 
+ * Fields are only ever appended, with a new version number, so that older consumers
+ * can keep reading the fields they know.
+ * 
+ * Messages are written into a per-thread buffer that is reused from one event to the
+ * next, and strings are UTF-8 encoded straight into it.
+ */
+public class BinaryUserEventCodec implements UserEventCodec {
+	
+	public static final String FORMAT = "binary";
+	
+	static final byte MAGIC = (byte) 0xB1;
+	static final byte VERSION = 1;
+	
+	private static final int INITIAL_BUFFER_SIZE = 256;
+	
+	private final ThreadLocal<Writer> writers = ThreadLocal.withInitial(Writer::new);
+	
+	public static boolean isBinary(byte[] message) {
+		return message.length > 0 && message[0] == MAGIC;
+	}
+	
+	@Override
+	public byte[] encode(UserEvent event) {
+		Writer out = writers.get();
+		out.reset();
+		out.writeByte(MAGIC);
+		out.writeByte(VERSION);
+		out.writeByte(event.getEvent().code);
+		out.writeVarint(event.getUserId());
+		
+		User user = event.getUser();
+		if (user == null) {
+			out.writeByte((byte) 0);
+		} else {
+			out.writeByte((byte) 1);
+			out.writeString(user.getFirstName());
+			out.writeString(user.getLastName());
+			out.writeString(user.getNickName());
+			out.writeString(user.getPassword());
+			out.writeString(user.getEmail());
+			out.writeString(user.getCountry());
+		}
+		return out.toByteArray();
+	}
+	
+	@Override
+	public UserEvent decode(byte[] message) {
+		Reader in = new Reader(message);
+		if (!isBinary(message) || in.readByte() != MAGIC || in.readByte() < VERSION) {
+			throw new IllegalArgumentException("Malformed binary event message");
+		}
+		Events event = Events.fromCode(in.readByte());
+		long userId = in.readVarint();
+		if (in.readByte() == 0) {
+			return new UserEvent(event, userId, null);
+		}
+		User user = new User(userId, in.readString(), in.readString(), in.readString(),
+				in.readString(), in.readString(), in.readString());
+		return new UserEvent(event, user);
+	}
+	
+	private static class Writer {
+		private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+		private int position;
+		
+		void reset() {
+			position = 0;
+		}
+		
+		byte[] toByteArray() {
+			return Arrays.copyOf(buffer, position);
+		}
+		
+		void writeByte(byte value) {
+			ensureCapacity(1);
+			buffer[position++] = value;
+		}
+		
+		void writeVarint(long value) {
+			ensureCapacity(10);
+			while ((value & ~0x7FL) != 0) {
+				buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			buffer[position++] = (byte) value;
+		}
+		
+		void writeString(String value) {
+			if (value == null) {
+				writeVarint(0);
+				return;
+			}
+			int length = utf8Length(value);
+			writeVarint(length + 1L);
+			ensureCapacity(length);
+			for (int i = 0; i < value.length(); i++) {
+				char c = value.charAt(i);
+				if (c < 0x80) {
+					buffer[position++] = (byte) c;
+				} else if (c < 0x800) {
+					buffer[position++] = (byte) (0xC0 | (c >> 6));
+					buffer[position++] = (byte) (0x80 | (c & 0x3F));
+				} else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+						&& Character.isLowSurrogate(value.charAt(i + 1))) {
+					int codePoint = Character.toCodePoint(c, value.charAt(++i));
+					buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+					buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+					buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+					buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+				} else if (Character.isSurrogate(c)) {
+					// Unpaired surrogate, replaced as String.getBytes(UTF_8) does
+					buffer[position++] = (byte) '?';
+				} else {
+					buffer[position++] = (byte) (0xE0 | (c >> 12));
+					buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+					buffer[position++] = (byte) (0x80 | (c & 0x3F));
+				}
+			}
+		}
+		
+		private static int utf8Length(String value) {
+			int length = 0;
+			for (int i = 0; i < value.length(); i++) {
+				char c = value.charAt(i);
+				if (c < 0x80) {
+					length += 1;
+				} else if (c < 0x800) {
+					length += 2;
+				} else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+						&& Character.isLowSurrogate(value.charAt(i + 1))) {
+					length += 4;
+					i++;
+				} else if (Character.isSurrogate(c)) {
+					length += 1;
+				} else {
+					length += 3;
+				}
+			}
+			return length;
+		}
+		
+		private void ensureCapacity(int extra) {
+			if (position + extra > buffer.length) {
+				buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + extra));
+			}
+		}
+	}
+	
+	private static class Reader {
+		private final byte[] buffer;
+		private int position;
+		
+		Reader(byte[] buffer) {
+			this.buffer = buffer;
+		}
+		
+		byte readByte() {
+			if (position >= buffer.length) {
+				throw new IllegalArgumentException("Truncated binary event message");
+			}
+			return buffer[position++];
+		}
+		
+		long readVarint() {
+			long value = 0;
+			for (int shift = 0; shift < 64; shift += 7) {
+				byte b = readByte();
+				value |= (long) (b & 0x7F) << shift;
+				if ((b & 0x80) == 0) {
+					return value;
+				}
+			}
+			throw new IllegalArgumentException("Malformed varint in binary event message");
+		}
+		
+		String readString() {
+			long length = readVarint() - 1;
+			if (length < 0) {
+				return null;
+			}
+			if (length > buffer.length - position) {
+				throw new IllegalArgumentException("Truncated binary event message");
+			}
+			String value = new String(buffer, position, (int) length, StandardCharsets.UTF_8);
+			position += (int) length;
+			return value;
+		}
+	}
+
+}
@@ -1,44 +1,70 @@
 package com.faceit.demo.event;
 
+import java.util.Collection;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.faceit.demo.entity.OutboxEvent;
 import com.faceit.demo.entity.User;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.faceit.demo.repo.OutboxEventRepository;
 
+/**
+ * Publishes event messages through the transactional outbox: messages are encoded
+ * with the configured {@link UserEventCodec} and stored in the caller's transaction,
+ * alongside the {@link User} change, then sent to Kafka by the {@link OutboxRelay}.
+ */
 @Component("eventPublisher")
 public class EventPublisher {
 	private static final Logger LOG = LoggerFactory.getLogger(EventPublisher.class);
 	
 	@Autowired
-	MessageProducer messageProducer;
+	OutboxEventRepository outboxRepo;
 	
-	private final ObjectMapper mapper = new ObjectMapper();
+	@Autowired
+	UserEventCodec codec;
 	
+	@Transactional(propagation = Propagation.MANDATORY)
 	public void publishEvent(Events event, User user) {
-		
-		try {
-			// Attempt to serialise User entity to Json format for message.
-			String userRepresentation = mapper.writeValueAsString(user);
-			this.publishEvent(event, userRepresentation);
-			
-		} catch (JsonProcessingException jex) {
-			LOG.warn(String.format("Error processing User entity to JSON format, "
-					+ "representing user with ID instead = %d", user.getId()));
-			this.publishEvent(event, String.valueOf(user.getId()));
-		}
+		this.append(new UserEvent(event, user));
     }
 	
-	public void publishEvent(Events event, String id){
-		ObjectNode node = mapper.getNodeFactory().objectNode();
-	    node.put("event", event.stringVal);
-	    node.put("user", id);
-	    messageProducer.sendMessage(node.toString());
-        LOG.info(String.format("Event is sent to Message Queue: %s", node.toString()));
+	/**
+	 * Publishes one event per {@link User}. The outbox rows are inserted in JDBC
+	 * batches along with the users themselves.
+	 */
+	@Transactional(propagation = Propagation.MANDATORY)
+	public void publishEvents(Events event, Collection<User> users) {
+		for (User user : users) {
+			this.publishEvent(event, user);
+		}
+	}
+	
+	/**
+	 * Publishes an event that identifies the {@link User} by ID alone, e.g. a deletion.
+	 */
+	@Transactional(propagation = Propagation.MANDATORY)
+	public void publishEvent(Events event, long id) {
+		this.append(new UserEvent(event, id, null));
+	}
+	
+	/**
+	 * Publishes one event per {@link User} ID, e.g. for a bulk deletion.
+	 */
+	@Transactional(propagation = Propagation.MANDATORY)
+	public void publishEventsById(Events event, Collection<Long> ids) {
+		for (long id : ids) {
+			this.publishEvent(event, id);
+		}
+	}
+	
+	private void append(UserEvent event) {
+	    outboxRepo.save(new OutboxEvent(event.getUserId(), codec.encode(event)));
+        LOG.info("Event is added to Outbox: {} for user {}", event.getEvent().stringVal, event.getUserId());
     }
 
 }
@@ -2,14 +2,36 @@ package com.faceit.demo.event;
 
 public enum Events {
 	
-	USER_CREATED("USER CREATED"),
-    USER_UPDATED("USER UPDATED"),
-	USER_DELETED("USER DELETED");
+	USER_CREATED("USER CREATED", (byte) 1),
+    USER_UPDATED("USER UPDATED", (byte) 2),
+	USER_DELETED("USER DELETED", (byte) 3);
 
     public String stringVal;
+    
+    /** Stable tag of the event in the binary event format, see {@link BinaryUserEventCodec}. */
+    public byte code;
 
-    Events(String event) {
+    Events(String event, byte code) {
         this.stringVal = event;
+        this.code = code;
+    }
+    
+    public static Events fromStringVal(String stringVal) {
+    	for (Events event : values()) {
+    		if (event.stringVal.equals(stringVal)) {
+    			return event;
+    		}
+    	}
+    	throw new IllegalArgumentException("Unknown event: " + stringVal);
+    }
+    
+    public static Events fromCode(byte code) {
+    	for (Events event : values()) {
+    		if (event.code == code) {
+    			return event;
+    		}
+    	}
+    	throw new IllegalArgumentException("Unknown event code: " + code);
     }
 
 }
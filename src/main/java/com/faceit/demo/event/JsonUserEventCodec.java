@@ -0,0 +1,132 @@
+package com.faceit.demo.event;
+
+import java.io.CharArrayWriter;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.faceit.demo.entity.User;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/**
+ * The original JSON event format: {"event":"USER CREATED","user":"..."} where "user"
+ * holds the JSON representation of the {@link User} as a string, or only its ID.
+ * 
+ * Messages are streamed field by field into buffers that are reused from one event to
+ * the next; no intermediate tree or String is built along the way. The buffers are
+ * pooled rather than held per thread, so that they are reused under virtual threads,
+ * where each event may be encoded on a thread of its own. Each message still allocates
+ * its generators and the returned byte array.
+ */
+public class JsonUserEventCodec implements UserEventCodec {
+	private static final Logger LOG = LoggerFactory.getLogger(JsonUserEventCodec.class);
+	
+	public static final String FORMAT = "json";
+	
+	private static final String EVENT_KEY = "event";
+	private static final String USER_KEY = "user";
+	private static final int INITIAL_BUFFER_SIZE = 512;
+	private static final int MAX_POOLED_BUFFERS = 64;
+	
+	private final ObjectMapper mapper = new ObjectMapper();
+	private final JsonFactory factory = mapper.getFactory().copy()
+			.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+	private final ObjectWriter userWriter = mapper.writerFor(User.class);
+	
+	// Buffers beyond the pool size, in use by more concurrent encodes, are dropped after use
+	private final BlockingQueue<Buffers> pool = new ArrayBlockingQueue<>(MAX_POOLED_BUFFERS);
+	
+	@Override
+	public byte[] encode(UserEvent event) {
+		Buffers buffer = pool.poll();
+		if (buffer == null) {
+			buffer = new Buffers();
+		}
+		try {
+			boolean userWritten = event.getUser() != null && writeUser(event.getUser(), buffer.user);
+			
+			try (JsonGenerator generator = factory.createGenerator(buffer.message, JsonEncoding.UTF8)) {
+				generator.writeStartObject();
+				generator.writeStringField(EVENT_KEY, event.getEvent().stringVal);
+				generator.writeFieldName(USER_KEY);
+				if (userWritten) {
+					generator.writeString(buffer.user.chars(), 0, buffer.user.size());
+				} else {
+					generator.writeString(Long.toString(event.getUserId()));
+				}
+				generator.writeEndObject();
+			}
+			return buffer.message.toByteArray();
+		} catch (IOException ex) {
+			// Buffers are in memory, so this can only be a bug in the writer
+			throw new IllegalStateException("Error writing JSON event message", ex);
+		} finally {
+			buffer.reset();
+			pool.offer(buffer);
+		}
+	}
+	
+	/**
+	 * Writes the JSON representation of the user, or nothing if it cannot be serialised.
+	 */
+	private boolean writeUser(User user, ReusableCharArrayWriter out) {
+		try (JsonGenerator generator = factory.createGenerator(out)) {
+			userWriter.writeValue(generator, user);
+			return true;
+		} catch (IOException ex) {
+			LOG.warn("Error processing User entity to JSON format, "
+					+ "representing user with ID instead = {}", user.getId());
+			out.reset();
+			return false;
+		}
+	}
+	
+	@Override
+	public UserEvent decode(byte[] message) {
+		try {
+			JsonNode node = mapper.readTree(message);
+			Events event = Events.fromStringVal(node.path(EVENT_KEY).asText());
+			String user = node.path(USER_KEY).asText();
+			if (user.startsWith("{")) {
+				User decoded = mapper.readValue(user, User.class);
+				return new UserEvent(event, decoded);
+			}
+			return new UserEvent(event, Long.parseLong(user), null);
+		} catch (IOException ex) {
+			throw new IllegalArgumentException("Malformed JSON event message", ex);
+		}
+	}
+	
+	private static class Buffers {
+		final ReusableCharArrayWriter user = new ReusableCharArrayWriter();
+		final ByteArrayBuilder message = new ByteArrayBuilder(INITIAL_BUFFER_SIZE);
+		
+		void reset() {
+			user.reset();
+			message.reset();
+		}
+	}
+	
+	/**
+	 * Exposes the written characters without copying them.
+	 */
+	private static class ReusableCharArrayWriter extends CharArrayWriter {
+		ReusableCharArrayWriter() {
+			super(INITIAL_BUFFER_SIZE);
+		}
+		
+		char[] chars() {
+			return buf;
+		}
+	}
+
+}
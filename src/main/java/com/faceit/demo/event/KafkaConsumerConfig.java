@@ -0,0 +1,57 @@
+package com.faceit.demo.event;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer2;
+
+/**
+ * Configuration for Consumer of event messages, used to keep the local User cache
+ * coherent with writes made by other instances.
+ */
+@Configuration
+@ConditionalOnProperty(name = "kafka.cache-sync.enabled", havingValue = "true")
+public class KafkaConsumerConfig {
+	
+	@Value("${kafka.address}")
+	private String KAFKA_ADDRESS;
+	
+	@Value("${kafka.cache-sync.group-prefix}")
+	private String GROUP_PREFIX;
+	
+	@Bean
+    public ConsumerFactory<String, UserEvent> cacheSyncConsumerFactory() {
+        Map<String, Object> configProps = new HashMap<>();
+        configProps.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, KAFKA_ADDRESS);
+        // Every instance must see every event, so each one joins a consumer group of its own
+        configProps.put(ConsumerConfig.GROUP_ID_CONFIG, GROUP_PREFIX + "-" + UUID.randomUUID());
+        // A new instance starts with an empty cache, so there is no history worth replaying
+        configProps.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest");
+        configProps.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        // Unreadable messages are logged and skipped instead of blocking the partition
+        configProps.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ErrorHandlingDeserializer2.class);
+        configProps.put(ErrorHandlingDeserializer2.VALUE_DESERIALIZER_CLASS, UserEventDeserializer.class);
+        return new DefaultKafkaConsumerFactory<>(configProps);
+    }
+	
+	@Bean
+    public ConcurrentKafkaListenerContainerFactory<String, UserEvent> cacheSyncListenerContainerFactory() {
+		ConcurrentKafkaListenerContainerFactory<String, UserEvent> factory =
+				new ConcurrentKafkaListenerContainerFactory<>();
+		factory.setConsumerFactory(cacheSyncConsumerFactory());
+		// Do not hold up start-up of the microservice while the topic is not yet created
+		factory.getContainerProperties().setMissingTopicsFatal(false);
+        return factory;
+    }
+
+}
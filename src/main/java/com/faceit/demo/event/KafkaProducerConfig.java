@@ -4,6 +4,7 @@ import java.util.HashMap;
 import java.util.Map;
 
 import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -12,7 +13,10 @@ import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.core.ProducerFactory;
 
 /**
- * Configuration for Producer of event messages
+ * Configuration for Producer of event messages.
+ * 
+ * Batching, compression and delivery guarantees are driven by the kafka.producer.*
+ * properties; the "throughput" profile tunes them for burst writes.
  */
 @Configuration
 public class KafkaProducerConfig {
@@ -26,18 +30,61 @@ public class KafkaProducerConfig {
 	@Value("${kafka.serializer}")
 	private String SERIALIZER_CLASS;
 	
+	@Value("${kafka.event-format}")
+	private String EVENT_FORMAT;
+	
+	@Value("${kafka.producer.acks}")
+	private String ACKS;
+	
+	@Value("${kafka.producer.enable-idempotence}")
+	private boolean ENABLE_IDEMPOTENCE;
+	
+	@Value("${kafka.producer.max-in-flight}")
+	private int MAX_IN_FLIGHT;
+	
+	@Value("${kafka.producer.linger-ms}")
+	private int LINGER_MS;
+	
+	@Value("${kafka.producer.batch-size}")
+	private int BATCH_SIZE;
+	
+	@Value("${kafka.producer.compression-type}")
+	private String COMPRESSION_TYPE;
+	
+	@Value("${kafka.producer.buffer-memory}")
+	private long BUFFER_MEMORY;
+	
 	@Bean
-    public ProducerFactory<String, String> producerFactory() {
+    public ProducerFactory<String, byte[]> producerFactory() {
         Map<String, Object> configProps = new HashMap<>();
         configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, KAFKA_ADDRESS);
         configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, SERIALIZER_CLASS);
-        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, SERIALIZER_CLASS);
+        // Values are encoded by the UserEventCodec when stored in the outbox
+        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class);
+        // Idempotence requires acks=all and at most 5 requests in flight, and keeps
+        // events in order across retries within those limits
+        configProps.put(ProducerConfig.ACKS_CONFIG, ACKS);
+        configProps.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, ENABLE_IDEMPOTENCE);
+        configProps.put(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, MAX_IN_FLIGHT);
+        // Wait up to linger.ms to fill batch.size bytes per partition before sending
+        configProps.put(ProducerConfig.LINGER_MS_CONFIG, LINGER_MS);
+        configProps.put(ProducerConfig.BATCH_SIZE_CONFIG, BATCH_SIZE);
+        configProps.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, COMPRESSION_TYPE);
+        configProps.put(ProducerConfig.BUFFER_MEMORY_CONFIG, BUFFER_MEMORY);
         return new DefaultKafkaProducerFactory<>(configProps);
     }
 	
 	@Bean
-    public KafkaTemplate<String, String> kafkaTemplate() {
+    public KafkaTemplate<String, byte[]> kafkaTemplate() {
         return new KafkaTemplate<>(producerFactory());
     }
+	
+	/**
+	 * Encoding of event messages, selected by kafka.event-format: "json" or "binary".
+	 */
+	@Bean
+	public UserEventCodec userEventCodec() {
+		return UserEventCodec.forFormat(EVENT_FORMAT);
+	}
 
 }
@@ -22,6 +22,12 @@ public class KafkaTopicConfig {
 	@Value("${kafka.address}")
 	private String KAFKA_ADDRESS;
 	
+	@Value("${kafka.partitions}")
+	private int PARTITIONS;
+	
+	@Value("${kafka.replication-factor}")
+	private short REPLICATION_FACTOR;
+	
 	@Bean
     public KafkaAdmin kafkaAdmin() {
         Map<String, Object> configs = new HashMap<>();
@@ -29,9 +35,13 @@ public class KafkaTopicConfig {
         return new KafkaAdmin(configs);
     }
 	
+	/**
+	 * Events are keyed by user ID, so each partition holds every event of its users in
+	 * order, and consumers in one group can scale out up to the partition count.
+	 */
 	@Bean
     public NewTopic userTopic() {
-        return new NewTopic(USER_TOPIC, 1, (short) 1);
+        return new NewTopic(USER_TOPIC, PARTITIONS, REPLICATION_FACTOR);
     }
 
 }
@@ -1,5 +1,12 @@
 package com.faceit.demo.event;
 
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -10,6 +17,17 @@ import org.springframework.stereotype.Component;
 import org.springframework.util.concurrent.ListenableFuture;
 import org.springframework.util.concurrent.ListenableFutureCallback;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Sends event messages to Kafka. With user.metrics.enabled, the latency of acknowledged
+ * sends is published as kafka.producer.send, failed sends are counted in
+ * kafka.producer.send.failures, and the buffer and in-flight figures of the producer
+ * as kafka.producer.* gauges. The exception of a failed send is logged.
+ */
 @Component
 public class MessageProducer {
 	private static final Logger LOG = LoggerFactory.getLogger(KafkaProducerConfig.class);
@@ -17,32 +35,96 @@ public class MessageProducer {
 	@Value("${kafka.topic}")
 	private String USER_TOPIC;
 	
+	@Value("${user.metrics.enabled}")
+	private boolean METRICS_ENABLED;
+	
 	@Autowired
-    private KafkaTemplate<String, String> kafkaTemplate;
+    private KafkaTemplate<String, byte[]> kafkaTemplate;
+	
+	@Autowired
+	private MeterRegistry meterRegistry;
+	
+	private Timer sendTimer;
+	
+	private Counter sendFailures;
+	
+	private static final String PRODUCER_METRICS_GROUP = "producer-metrics";
+	
+	/*
+	 * Producer metrics read from KafkaTemplate.metrics() on each scrape; the producer
+	 * is created on the first send or scrape.
+	 */
+	@PostConstruct
+	private void registerMetrics() {
+		if (!METRICS_ENABLED) {
+			return;
+		}
+		sendTimer = Timer.builder("kafka.producer.send")
+				.description("Latency from send to acknowledgement by the broker")
+				.register(meterRegistry);
+		sendFailures = Counter.builder("kafka.producer.send.failures")
+				.description("Sends that failed or were not acknowledged")
+				.register(meterRegistry);
+		producerGauge("kafka.producer.buffer.available", "buffer-available-bytes",
+				"Unused buffer memory of the producer in bytes");
+		producerGauge("kafka.producer.buffer.total", "buffer-total-bytes",
+				"Buffer memory of the producer in bytes");
+		producerGauge("kafka.producer.waiting.threads", "waiting-threads",
+				"Threads blocked waiting for buffer memory");
+		producerGauge("kafka.producer.requests.in-flight", "requests-in-flight",
+				"Produce requests awaiting a response from the broker");
+	}
+	
+	private void producerGauge(String name, String kafkaMetric, String description) {
+		Gauge.builder(name, kafkaTemplate, template -> producerMetric(template, kafkaMetric))
+				.description(description)
+				.register(meterRegistry);
+	}
+	
+	private static double producerMetric(KafkaTemplate<String, byte[]> template, String name) {
+		for (Map.Entry<MetricName, ? extends Metric> metric : template.metrics().entrySet()) {
+			if (metric.getKey().name().equals(name) && metric.getKey().group().equals(PRODUCER_METRICS_GROUP)) {
+				Object value = metric.getValue().metricValue();
+				return (value instanceof Number) ? ((Number) value).doubleValue() : Double.NaN;
+			}
+		}
+		return Double.NaN;
+	}
 	
 	/**
 	 * Send event message to Kafka message queue with User Microservice Topic.
-	 * @param message
+	 * Messages with the same key go to the same partition and keep their order.
+	 * @param key ID of the user the event is about
+	 * @param message message encoded by the {@link UserEventCodec}
+	 * @return the pending result of the send
 	 */
-	public void sendMessage(String message) {
+	public ListenableFuture<SendResult<String, byte[]>> sendMessage(String key, byte[] message) {
 		
 
-        ListenableFuture<SendResult<String, String>> future = kafkaTemplate.send(USER_TOPIC, message);
+        long start = System.nanoTime();
+        ListenableFuture<SendResult<String, byte[]>> future = kafkaTemplate.send(USER_TOPIC, key, message);
 
         // Define call back functions to log success/failure
-        future.addCallback(new ListenableFutureCallback<SendResult<String, String>>() {
+        future.addCallback(new ListenableFutureCallback<SendResult<String, byte[]>>() {
 
             @Override
-            public void onSuccess(SendResult<String, String> result) {
-            	LOG.info("Sent message=[" + message + "] with offset=[" + result.getRecordMetadata()
-                    .offset() + "]");
+            public void onSuccess(SendResult<String, byte[]> result) {
+            	if (sendTimer != null) {
+            		sendTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            	}
+            	LOG.info("Sent message with key=[{}] of {} bytes with offset=[{}]",
+            			key, message.length, result.getRecordMetadata().offset());
             }
 
             @Override
             public void onFailure(Throwable ex) {
-            	LOG.error("Unable to send message=[" + message + "] due to : " + ex.getMessage());
+            	if (sendFailures != null) {
+            		sendFailures.increment();
+            	}
+            	LOG.error("Unable to send message with key=[{}] due to : {}", key, ex.getMessage());
             }
         });
+        return future;
     }
 
 }
@@ -0,0 +1,170 @@
+package com.faceit.demo.event;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.concurrent.ListenableFuture;
+
+import com.faceit.demo.entity.OutboxEvent;
+import com.faceit.demo.repo.OutboxEventRepository;
+
+/**
+ * Drains the transactional outbox to Kafka in batches, in the order the events were
+ * written, keyed by user ID so that each user's events stay ordered. An event is
+ * deleted only after the broker acknowledged it, so delivery is at-least-once: a crash
+ * between the acknowledgement and the commit re-sends it.
+ *
+ * A batch is claimed for outbox.relay.lease-ms in a short transaction, and sent after
+ * its commit, so that no row lock or connection is held while waiting for Kafka. A
+ * relay that crashes leaves its claim to expire, and the batch is then sent again.
+ */
+@Component
+public class OutboxRelay {
+	private static final Logger LOG = LoggerFactory.getLogger(OutboxRelay.class);
+	
+	@Autowired
+	private OutboxEventRepository outboxRepo;
+	
+	@Autowired
+	private MessageProducer messageProducer;
+	
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+	
+	@Value("${outbox.relay.batch-size}")
+	private int BATCH_SIZE;
+	
+	@Value("${outbox.relay.send-timeout-ms}")
+	private long SEND_TIMEOUT_MS;
+	
+	@Value("${outbox.relay.lease-ms}")
+	private long LEASE_MS;
+	
+	@Scheduled(fixedDelayString = "${outbox.relay.interval-ms}")
+	public void relay() {
+		List<OutboxEvent> batch = transactionTemplate.execute(status -> claim());
+		if (batch == null || batch.isEmpty()) {
+			return;
+		}
+	
+		List<Long> sent = new ArrayList<>(batch.size());
+		try {
+			send(batch, sent);
+		} finally {
+			Set<Long> sentIds = new HashSet<>(sent);
+			List<Long> unsent = batch.stream()
+					.map(OutboxEvent::getId)
+					.filter(id -> !sentIds.contains(id))
+					.collect(Collectors.toList());
+			transactionTemplate.execute(status -> {
+				if (!sent.isEmpty()) {
+					outboxRepo.deleteByIds(sent);
+				}
+				if (!unsent.isEmpty()) {
+					// Released rather than left to expire, so that they are retried next run
+					outboxRepo.updateClaimedUntil(unsent, null);
+				}
+				return null;
+			});
+			if (!unsent.isEmpty()) {
+				LOG.warn("Outbox relay sent {} of {} events, will retry the rest", sent.size(), batch.size());
+			}
+		}
+	}
+	
+	/*
+	 * Claims the oldest events, unless another relay still holds a claim on any of them:
+	 * sending later events then could deliver them ahead of earlier events of the same
+	 * user that the other relay fails to send.
+	 */
+	private List<OutboxEvent> claim() {
+		List<OutboxEvent> batch = outboxRepo.findAllByOrderBySequenceNumberAsc(PageRequest.of(0, BATCH_SIZE));
+		Instant now = Instant.now();
+		for (OutboxEvent event : batch) {
+			if (event.getClaimedUntil() != null && event.getClaimedUntil().isAfter(now)) {
+				return Collections.emptyList();
+			}
+		}
+		if (!batch.isEmpty()) {
+			outboxRepo.updateClaimedUntil(
+					batch.stream().map(OutboxEvent::getId).collect(Collectors.toList()),
+					now.plusMillis(LEASE_MS));
+		}
+		return batch;
+	}
+	
+	/*
+	 * Sends the batch in rounds of at most one event per user, and awaits every
+	 * acknowledgement of a round before the next. A user's event is therefore only sent
+	 * once the previous one was acknowledged, and after a failed send the user's later
+	 * events are kept in the outbox, to be retried in order by the next run. Events of
+	 * different users are sent together, so that a round takes few requests.
+	 */
+	private void send(List<OutboxEvent> batch, List<Long> sent) {
+		Map<Long, Deque<OutboxEvent>> pending = new LinkedHashMap<>();
+		for (OutboxEvent event : batch) {
+			pending.computeIfAbsent(event.getAggregateId(), user -> new ArrayDeque<>()).add(event);
+		}
+	
+		while (!pending.isEmpty()) {
+			List<OutboxEvent> round = new ArrayList<>(pending.size());
+			List<ListenableFuture<SendResult<String, byte[]>>> sends = new ArrayList<>(pending.size());
+			for (Deque<OutboxEvent> events : pending.values()) {
+				OutboxEvent event = events.peek();
+				round.add(event);
+				sends.add(messageProducer.sendMessage(String.valueOf(event.getAggregateId()), event.getPayload()));
+			}
+	
+			for (int i = 0; i < round.size(); i++) {
+				OutboxEvent event = round.get(i);
+				if (acknowledged(sends.get(i))) {
+					sent.add(event.getId());
+					pending.get(event.getAggregateId()).poll();
+				} else {
+					pending.remove(event.getAggregateId());
+				}
+			}
+			for (Iterator<Deque<OutboxEvent>> events = pending.values().iterator(); events.hasNext();) {
+				if (events.next().isEmpty()) {
+					events.remove();
+				}
+			}
+		}
+	}
+	
+	private boolean acknowledged(ListenableFuture<SendResult<String, byte[]>> send) {
+		try {
+			send.get(SEND_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+			return true;
+		} catch (ExecutionException | TimeoutException ex) {
+			LOG.warn("Outbox event not acknowledged: {}", ex.getMessage());
+			return false;
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+	
+}
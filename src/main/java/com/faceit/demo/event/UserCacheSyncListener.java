@@ -0,0 +1,32 @@
+package com.faceit.demo.event;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+import com.faceit.demo.cache.UserCache;
+
+/**
+ * Consumes the User event messages published by every instance of the microservice
+ * and evicts the affected {@link com.faceit.demo.entity.User} from the local cache,
+ * so that a write on one node is not hidden by a stale copy on another.
+ */
+@Component
+@ConditionalOnProperty(name = "kafka.cache-sync.enabled", havingValue = "true")
+public class UserCacheSyncListener {
+	private static final Logger LOG = LoggerFactory.getLogger(UserCacheSyncListener.class);
+	
+	@Autowired
+	private UserCache userCache;
+	
+	@KafkaListener(topics = "${kafka.topic}", containerFactory = "cacheSyncListenerContainerFactory")
+	public void onEvent(UserEvent event) {
+		// Evicting rather than refreshing keeps the next read consistent with the repository
+		userCache.evict(event.getUserId());
+		LOG.debug("Evicted user {} from cache on event {}", event.getUserId(), event.getEvent().stringVal);
+	}
+
+}
@@ -0,0 +1,38 @@
+package com.faceit.demo.event;
+
+import com.faceit.demo.entity.User;
+
+/**
+ * An event message about a {@link User}, independent of its encoding on the wire.
+ * {@code user} is null when the event identifies the user by ID alone, e.g. a deletion.
+ */
+public class UserEvent {
+	
+	private final Events event;
+	private final long userId;
+	private final User user;
+	
+	public UserEvent(Events event, long userId, User user) {
+		super();
+		this.event = event;
+		this.userId = userId;
+		this.user = user;
+	}
+	
+	public UserEvent(Events event, User user) {
+		this(event, user.getId(), user);
+	}
+	
+	public Events getEvent() {
+		return event;
+	}
+	
+	public long getUserId() {
+		return userId;
+	}
+	
+	public User getUser() {
+		return user;
+	}
+	
+}
@@ -0,0 +1,39 @@
+package com.faceit.demo.event;
+
+/**
+ * Encodes {@link UserEvent} messages to and from the bytes sent to Kafka.
+ */
+public interface UserEventCodec {
+	
+	/**
+	 * @param event  event to encode
+	 * @return the encoded message
+	 */
+	public byte[] encode(UserEvent event);
+	
+	/**
+	 * @param message  message produced by {@link #encode(UserEvent)}
+	 * @return the decoded event
+	 * @throws IllegalArgumentException the message is not in this codec's format
+	 */
+	public UserEvent decode(byte[] message) throws IllegalArgumentException;
+	
+	/**
+	 * Picks the codec selected by the kafka.event-format property.
+	 * 
+	 * @param format  "json" or "binary"
+	 * @return the {@link UserEventCodec} for the format
+	 */
+	public static UserEventCodec forFormat(String format) {
+		switch (format) {
+		case JsonUserEventCodec.FORMAT:
+			return new JsonUserEventCodec();
+		case BinaryUserEventCodec.FORMAT:
+			return new BinaryUserEventCodec();
+		default:
+			throw new IllegalArgumentException("Unknown event format: " + format);
+		}
+	}
+
+
+}
@@ -0,0 +1,37 @@
+package com.faceit.demo.event;
+
+import java.util.Map;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+
+/**
+ * Kafka {@link Deserializer} of {@link UserEvent} messages. Both the JSON and the
+ * binary format are accepted, so consumers keep working while producers switch.
+ */
+public class UserEventDeserializer implements Deserializer<UserEvent> {
+	
+	private final UserEventCodec jsonCodec = new JsonUserEventCodec();
+	private final UserEventCodec binaryCodec = new BinaryUserEventCodec();
+	
+	@Override
+	public void configure(Map<String, ?> configs, boolean isKey) {
+	}
+	
+	@Override
+	public UserEvent deserialize(String topic, byte[] message) {
+		if (message == null) {
+			return null;
+		}
+		try {
+			return BinaryUserEventCodec.isBinary(message) ? binaryCodec.decode(message) : jsonCodec.decode(message);
+		} catch (IllegalArgumentException ex) {
+			throw new SerializationException("Unreadable user event on topic " + topic, ex);
+		}
+	}
+	
+	@Override
+	public void close() {
+	}
+
+}
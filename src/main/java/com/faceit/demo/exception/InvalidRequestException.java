@@ -0,0 +1,9 @@
+package com.faceit.demo.exception;
+
+public class InvalidRequestException extends UserMicroserviceException {
+	
+	public InvalidRequestException(String msg) {
+        super(msg);
+    }
+
+}
@@ -0,0 +1,9 @@
+package com.faceit.demo.exception;
+
+public class PreconditionFailedException extends UserMicroserviceException {
+	
+	public PreconditionFailedException(long id) {
+        super(String.format("User with Id %d has been modified since it was read", id));
+    }
+
+}
@@ -0,0 +1,9 @@
+package com.faceit.demo.exception;
+
+public class ServiceUnavailableException extends UserMicroserviceException {
+	
+	public ServiceUnavailableException(String msg) {
+        super(msg);
+    }
+
+}
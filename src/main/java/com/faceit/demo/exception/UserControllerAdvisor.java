@@ -2,6 +2,8 @@ package com.faceit.demo.exception;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -10,7 +12,10 @@ import org.springframework.web.bind.annotation.ResponseStatus;
 
 import java.sql.SQLException;
 import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 /**
@@ -23,6 +28,9 @@ public class UserControllerAdvisor {
 	private static final String TIMESTAMP_KEY = "timestamp";
     private static final String MESSAGE_KEY = "message";
     private static final String ERROR_MSG = "operation failed.";
+    private static final String ERROR_CONFLICT = "User conflicts with an existing user's email or nickName.";
+    private static final String ERROR_CONSTRAINT = "User violates a data constraint.";
+    private static final List<String> UNIQUE_KEYS = Arrays.asList("uk_user_email", "uk_user_nick_name");
 
     @ResponseStatus(HttpStatus.NOT_FOUND)
     @ExceptionHandler({UserNotFoundException.class, NoDataFoundException.class})
@@ -36,12 +44,60 @@ public class UserControllerAdvisor {
     	return new ResponseEntity<>(constructResponseBody(e.getMessage()), HttpStatus.NOT_ACCEPTABLE);
     }
 
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ExceptionHandler({InvalidRequestException.class})
+    public ResponseEntity<String> handle(InvalidRequestException e) {
+    	return new ResponseEntity<>(constructResponseBody(e.getMessage()), HttpStatus.BAD_REQUEST);
+    }
+
+    @ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+    @ExceptionHandler({PreconditionFailedException.class})
+    public ResponseEntity<String> handle(PreconditionFailedException e) {
+    	return new ResponseEntity<>(constructResponseBody(e.getMessage()), HttpStatus.PRECONDITION_FAILED);
+    }
+
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    @ExceptionHandler({ServiceUnavailableException.class})
+    public ResponseEntity<String> handle(ServiceUnavailableException e) {
+    	return new ResponseEntity<>(constructResponseBody(e.getMessage()), HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    /**
+     * Conflict only for a violation of the unique keys of email and nickName, which a
+     * client can resolve; any other violation is caused by invalid request data.
+     */
+    @ExceptionHandler({DataIntegrityViolationException.class})
+    public ResponseEntity<String> handle(DataIntegrityViolationException e) {
+    	if (isUniqueKeyViolation(e)) {
+    		return new ResponseEntity<>(constructResponseBody(ERROR_CONFLICT), HttpStatus.CONFLICT);
+    	}
+    	return new ResponseEntity<>(constructResponseBody(ERROR_CONSTRAINT), HttpStatus.BAD_REQUEST);
+    }
+
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     @ExceptionHandler({IllegalArgumentException.class, SQLException.class, NullPointerException.class})
     public ResponseEntity<String> handleError(Exception e) {
         return new ResponseEntity<>(constructResponseBody(e.getMessage()), HttpStatus.INTERNAL_SERVER_ERROR);
     }
 
+    /*
+     * The constraint name is extracted by the Hibernate dialect, e.g. uk_user_email on
+     * PostgreSQL but "PUBLIC.UK_USER_EMAIL_INDEX_4" on H2, so it is matched loosely.
+     */
+    private static boolean isUniqueKeyViolation(DataIntegrityViolationException e) {
+    	for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+    		if (cause instanceof ConstraintViolationException) {
+    			String constraint = ((ConstraintViolationException) cause).getConstraintName();
+    			if (constraint == null) {
+    				return false;
+    			}
+    			String name = constraint.toLowerCase(Locale.ROOT);
+    			return UNIQUE_KEYS.stream().anyMatch(name::contains);
+    		}
+    	}
+    	return false;
+    }
+
     private String constructResponseBody(String msg) {
     	String resMsg = (msg == null || msg.isEmpty())? ERROR_MSG : msg;
         Map<String, String> body = new LinkedHashMap<>();
@@ -0,0 +1,68 @@
+package com.faceit.demo.metrics;
+
+import org.springframework.aop.framework.Advised;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.repository.Repository;
+
+import com.faceit.demo.service.UserService;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+
+/**
+ * Times the hot paths of the microservice, enabled by user.metrics.enabled:
+ * <ul>
+ * <li>user.service: every {@link UserService} operation, including its transaction</li>
+ * <li>user.repository: every repository method, tagged with the repository bean</li>
+ * <li>user.search: searches per criteria shape, see UserServiceImpl</li>
+ * </ul>
+ * Percentiles and histograms are configured with management.metrics.distribution.*.
+ */
+@Configuration
+@ConditionalOnProperty(name = "user.metrics.enabled", havingValue = "true")
+public class MetricsConfig {
+
+	static final String SERVICE_TIMER = "user.service";
+	static final String REPOSITORY_TIMER = "user.repository";
+
+	/*
+	 * Static and with a lazy registry, so that the post-processor does not initialize
+	 * the metrics infrastructure before other beans can be post-processed.
+	 */
+	@Bean
+	public static BeanPostProcessor timingBeanPostProcessor(ObjectProvider<MeterRegistry> meterRegistry) {
+		return new BeanPostProcessor() {
+			@Override
+			public Object postProcessAfterInitialization(Object bean, String beanName) {
+				if (bean instanceof UserService) {
+					return instrument(bean, new TimingInterceptor(meterRegistry, SERVICE_TIMER, Tags.empty()));
+				}
+				if (bean instanceof Repository) {
+					return instrument(bean,
+							new TimingInterceptor(meterRegistry, REPOSITORY_TIMER, Tags.of("repository", beanName)));
+				}
+				return bean;
+			}
+		};
+	}
+
+	/**
+	 * Adds the interceptor in front of the existing advice of a proxy, e.g. the
+	 * transaction interceptor, or wraps the bean in a new proxy of its interfaces.
+	 */
+	static Object instrument(Object bean, TimingInterceptor interceptor) {
+		if (bean instanceof Advised && !((Advised) bean).isFrozen()) {
+			((Advised) bean).addAdvice(0, interceptor);
+			return bean;
+		}
+		ProxyFactory proxyFactory = new ProxyFactory(bean);
+		proxyFactory.addAdvice(interceptor);
+		return proxyFactory.getProxy();
+	}
+
+}
@@ -0,0 +1,53 @@
+package com.faceit.demo.repo;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+import javax.persistence.LockModeType;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.faceit.demo.entity.OutboxEvent;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+	
+	/**
+	 * Oldest pending events, locked for the rest of the transaction so that only one
+	 * relay at a time can claim them.
+	 * 
+	 * @param pageable  only the page size is used, the offset must be 0
+	 * @return a {@link List} of {@link OutboxEvent} in the order they were written
+	 */
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	List<OutboxEvent> findAllByOrderBySequenceNumberAsc(Pageable pageable);
+	
+	/**
+	 * Claims events for a relay until the given time, or releases them with null.
+	 * 
+	 * @param ids           IDs of the events
+	 * @param claimedUntil  end of the claim, null to release the events
+	 * @return the number of events updated
+	 */
+	@Modifying
+	@Query("update OutboxEvent e set e.claimedUntil = :claimedUntil where e.id in :ids")
+	int updateClaimedUntil(@Param("ids") Collection<Long> ids, @Param("claimedUntil") Instant claimedUntil);
+	
+	/**
+	 * Deletes sent events in one statement, without loading them.
+	 * 
+	 * @param ids  IDs of the events
+	 * @return the number of events deleted
+	 */
+	@Modifying
+	@Query("delete from OutboxEvent e where e.id in :ids")
+	int deleteByIds(@Param("ids") Collection<Long> ids);
+
+}
@@ -0,0 +1,223 @@
+package com.faceit.demo.repo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.faceit.demo.exception.InvalidRequestException;
+import com.faceit.demo.util.SpecSearchCriteria;
+
+/**
+ * Hand-written tokenizer for comma-separated search strings with following format:
+ * {key}{operator}{value}. e.g. firstName:Joe,country!England.
+ * Criteria separated by "|" instead of "," form an OR group, which binds tighter than
+ * the AND of ",": country:England|country:Spain,firstName^Jo.
+ * A key must be one of {@link UserSpecification#SEARCHABLE_KEYS}; a value runs up to
+ * the next separator, and IN-lists separate their values with ";".
+ */
+public final class SearchCriteriaParser {
+	
+	static final char AND = ',';
+	static final char OR = '|';
+	static final char LIST_SEPARATOR = ';';
+	static final char FIELD_SEPARATOR = ',';
+	static final String OPERATORS = UserSpecification.EQUALITY + UserSpecification.NEGATION
+			+ UserSpecification.STARTS_WITH + UserSpecification.CONTAINS
+			+ UserSpecification.GREATER_THAN_OR_EQUAL + UserSpecification.LESS_THAN_OR_EQUAL
+			+ UserSpecification.IN;
+	
+	private static final String ERROR_CRITERIA = "Invalid search criteria at position %d: %s";
+	private static final String ERROR_KEY = "Unknown search key '%s', expected one of %s";
+	private static final String ERROR_OPERATION = "Operator '%s' is not supported for search key '%s'";
+	private static final String ERROR_VALUE = "Invalid value '%s' for search key '%s'";
+	private static final String ERROR_FIELD = "Unknown field '%s', expected one of %s";
+	
+	private SearchCriteriaParser() {}
+	
+	/**
+	 * Canonical form of a search string: surrounding whitespace of every criterion and
+	 * empty criteria are dropped, so that equivalent strings share one cached plan.
+	 * Returns the input itself when it is already normalized.
+	 * 
+	 * @param criteria search string
+	 * @return normalized search string, empty if there is no criterion
+	 */
+	public static String normalize(String criteria) {
+		if (criteria == null) {
+			return "";
+		}
+		if (isNormalized(criteria)) {
+			return criteria;
+		}
+		StringBuilder normalized = new StringBuilder(criteria.length());
+		int start = 0;
+		while (start <= criteria.length()) {
+			int end = criteria.indexOf(AND, start);
+			if (end < 0) {
+				end = criteria.length();
+			}
+			String group = criteria.substring(start, end).trim();
+			if (!group.isEmpty()) {
+				if (normalized.length() > 0) {
+					normalized.append(AND);
+				}
+				appendGroup(normalized, group);
+			}
+			start = end + 1;
+		}
+		return normalized.toString();
+	}
+	
+	private static void appendGroup(StringBuilder normalized, String group) {
+		int start = 0;
+		while (true) {
+			int end = group.indexOf(OR, start);
+			if (end < 0) {
+				normalized.append(group.substring(start).trim());
+				return;
+			}
+			normalized.append(group.substring(start, end).trim()).append(OR);
+			start = end + 1;
+		}
+	}
+	
+	private static boolean isNormalized(String criteria) {
+		char previous = AND;
+		for (int i = 0; i < criteria.length(); i++) {
+			char c = criteria.charAt(i);
+			boolean separator = c == AND || c == OR;
+			if (separator ? previous == AND || Character.isWhitespace(previous)
+					: Character.isWhitespace(c) && (previous == AND || previous == OR)) {
+				return false;
+			}
+			previous = c;
+		}
+		return criteria.isEmpty() || (previous != AND && !Character.isWhitespace(previous));
+	}
+	
+	/**
+	 * To tokenize a normalized search string into its criteria, converting every value
+	 * to the type of its key.
+	 * 
+	 * @param criteria search string, see {@link #normalize(String)}
+	 * @return criteria in order of appearance
+	 * @throws InvalidRequestException a criterion is malformed, has an unknown key, or
+	 * 	has a value or operator that does not fit its key
+	 */
+	public static List<SpecSearchCriteria> parse(String criteria) throws InvalidRequestException {
+		if (criteria.isEmpty()) {
+			return Collections.emptyList();
+		}
+		List<SpecSearchCriteria> result = new ArrayList<>();
+		int pos = 0;
+		int length = criteria.length();
+		boolean orPredicate = false;
+		while (true) {
+			int keyStart = pos;
+			while (pos < length && isKeyChar(criteria.charAt(pos))) {
+				pos++;
+			}
+			if (pos == keyStart) {
+				throw error(criteria, pos, "expected a key");
+			}
+			String key = criteria.substring(keyStart, pos);
+			
+			if (pos == length || OPERATORS.indexOf(criteria.charAt(pos)) < 0) {
+				throw error(criteria, pos, "expected one of the operators " + OPERATORS);
+			}
+			String operation = String.valueOf(criteria.charAt(pos++));
+			
+			int valueEnd = pos;
+			while (valueEnd < length && criteria.charAt(valueEnd) != AND && criteria.charAt(valueEnd) != OR) {
+				valueEnd++;
+			}
+			if (valueEnd == pos) {
+				throw error(criteria, pos, "expected a value");
+			}
+			Object value = convert(key, operation, criteria.substring(pos, valueEnd));
+			result.add(new SpecSearchCriteria(key, operation, value, orPredicate));
+			
+			if (valueEnd == length) {
+				return result;
+			}
+			orPredicate = criteria.charAt(valueEnd) == OR;
+			pos = valueEnd + 1;
+		}
+	}
+	
+	/**
+	 * To parse a comma-separated list of {@link UserSpecification#SEARCHABLE_KEYS} to
+	 * project search and list responses on, e.g. id,nickName,country.
+	 * 
+	 * @param fields field list
+	 * @return distinct fields in order of appearance
+	 * @throws InvalidRequestException the list is empty or has an unknown field
+	 */
+	public static List<String> parseFields(String fields) throws InvalidRequestException {
+		List<String> result = new ArrayList<>();
+		int start = 0;
+		while (start <= fields.length()) {
+			int end = fields.indexOf(FIELD_SEPARATOR, start);
+			if (end < 0) {
+				end = fields.length();
+			}
+			String field = fields.substring(start, end).trim();
+			if (!UserSpecification.SEARCHABLE_KEYS.containsKey(field)) {
+				throw new InvalidRequestException(String.format(ERROR_FIELD, field, UserSpecification.SEARCHABLE_KEYS.keySet()));
+			}
+			if (!result.contains(field)) {
+				result.add(field);
+			}
+			start = end + 1;
+		}
+		return result;
+	}
+	
+	private static Object convert(String key, String operation, String value) throws InvalidRequestException {
+		Class<?> type = UserSpecification.SEARCHABLE_KEYS.get(key);
+		if (type == null) {
+			throw new InvalidRequestException(String.format(ERROR_KEY, key, UserSpecification.SEARCHABLE_KEYS.keySet()));
+		}
+		boolean pattern = UserSpecification.STARTS_WITH.equals(operation) || UserSpecification.CONTAINS.equals(operation);
+		if (pattern && type != String.class) {
+			throw new InvalidRequestException(String.format(ERROR_OPERATION, operation, key));
+		}
+		if (!UserSpecification.IN.equals(operation)) {
+			return convertValue(key, type, value);
+		}
+		List<Object> values = new ArrayList<>();
+		int start = 0;
+		while (start <= value.length()) {
+			int end = value.indexOf(LIST_SEPARATOR, start);
+			if (end < 0) {
+				end = value.length();
+			}
+			values.add(convertValue(key, type, value.substring(start, end)));
+			start = end + 1;
+		}
+		return values;
+	}
+	
+	private static Object convertValue(String key, Class<?> type, String value) throws InvalidRequestException {
+		if (value.isEmpty()) {
+			throw new InvalidRequestException(String.format(ERROR_VALUE, value, key));
+		}
+		if (type == Long.class) {
+			try {
+				return Long.valueOf(value);
+			} catch (NumberFormatException ex) {
+				throw new InvalidRequestException(String.format(ERROR_VALUE, value, key));
+			}
+		}
+		return value;
+	}
+	
+	private static boolean isKeyChar(char c) {
+		return c == '_' || Character.isLetterOrDigit(c);
+	}
+	
+	private static InvalidRequestException error(String criteria, int pos, String expected) {
+		return new InvalidRequestException(String.format(ERROR_CRITERIA, pos, expected));
+	}
+
+}
@@ -1,13 +1,115 @@
 package com.faceit.demo.repo;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import javax.persistence.QueryHint;
+
 import org.springframework.stereotype.Repository;
 
 import com.faceit.demo.entity.User;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.lang.Nullable;
+import org.springframework.transaction.annotation.Transactional;
 
 @Repository
-public interface UserRepository extends JpaRepository<User, Long>, JpaSpecificationExecutor<User> {}
+public interface UserRepository extends JpaRepository<User, Long>, JpaSpecificationExecutor<User>,
+		UserRepositoryCustom {
+	
+	/**
+	 * Keyset page of users whose ID is greater than the given cursor, in ID order.
+	 * The lookup seeks on the primary key index, so it costs the same no matter how
+	 * deep into the table the cursor points.
+	 * 
+	 * @param id        ID of the last {@link User} of the previous page, 0 for the first page
+	 * @param pageable  only the page size is used, the offset must be 0
+	 * @return a {@link List} of at most {@code pageable.getPageSize()} users
+	 */
+	List<User> findByIdGreaterThanOrderByIdAsc(long id, Pageable pageable);
+	
+	/**
+	 * Forward-only stream over the whole User repository in ID order. Rows are fetched
+	 * from the JDBC cursor in chunks of the fetch size rather than loaded up front.
+	 * Must be consumed, and closed, inside a transaction.
+	 * 
+	 * @return a {@link Stream} of {@link User} entities
+	 */
+	@QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "500"))
+	@Query("select u from User u order by u.id")
+	Stream<User> streamAllOrderById();
+	
+	/**
+	 * Looks a {@link User} up on the primary database, unlike {@link #findById(Object)},
+	 * whose read-only transaction is routed to a read replica. Entries of the user cache
+	 * are loaded with this, because a lagging replica could return a row older than the
+	 * change that just evicted it, and the stale copy would then be served until it
+	 * expires. Joins the transaction of the caller, so it must not be called in a
+	 * read-only one.
+	 * 
+	 * @param id  ID of the user
+	 * @return the {@link User}, or empty if there is none with this ID
+	 */
+	@Transactional
+	@Query("select u from User u where u.id = :id")
+	Optional<User> findByIdOnPrimary(@Param("id") long id);
+	
+	/**
+	 * IDs of the given list that exist, read from the primary key index alone.
+	 * 
+	 * @param ids  IDs to look up
+	 * @return the existing IDs, in no particular order
+	 */
+	@Query("select u.id from User u where u.id in :ids")
+	List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+	
+	/**
+	 * Owners of the given emails, looked up without loading the users.
+	 * 
+	 * @param emails  emails to look up
+	 * @return an {@link UniqueValueOwner} per email that is taken, in no particular order
+	 */
+	@Query("select u.email as uniqueValue, u.id as ownerId from User u where u.email in :emails")
+	List<UniqueValueOwner> findEmailOwners(@Param("emails") Collection<String> emails);
+	
+	/**
+	 * Owners of the given nick names, looked up without loading the users.
+	 * 
+	 * @param nickNames  nick names to look up
+	 * @return an {@link UniqueValueOwner} per nick name that is taken, in no particular order
+	 */
+	@Query("select u.nickName as uniqueValue, u.id as ownerId from User u where u.nickName in :nickNames")
+	List<UniqueValueOwner> findNickNameOwners(@Param("nickNames") Collection<String> nickNames);
+	
+	/**
+	 * Deletes users in one statement, without loading them. Bypasses the persistence
+	 * context and the optimistic version check.
+	 * 
+	 * @param ids  IDs of the users
+	 * @return the number of users deleted
+	 */
+	@Modifying
+	@Query("delete from User u where u.id in :ids")
+	int deleteByIds(@Param("ids") Collection<Long> ids);
+	
+	/**
+	 * A value of a unique column and the ID of the {@link User} holding it.
+	 */
+	interface UniqueValueOwner {
+		
+		String getUniqueValue();
+		
+		Long getOwnerId();
+		
+	}
+	
+}
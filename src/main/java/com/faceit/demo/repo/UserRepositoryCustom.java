@@ -0,0 +1,53 @@
+package com.faceit.demo.repo;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.lang.Nullable;
+
+import com.faceit.demo.entity.User;
+
+/**
+ * Queries of {@link UserRepository} that Spring Data cannot derive, implemented by
+ * {@link UserRepositoryCustomImpl}.
+ */
+public interface UserRepositoryCustom {
+	
+	/**
+	 * Selects only the given fields of the users matching a specification. Rows are
+	 * read as scalar tuples, so no {@link User} entity is hydrated or managed by the
+	 * persistence context.
+	 * 
+	 * @param spec    users to select, or null for all users
+	 * @param fields  {@link User} attributes to select, in response order
+	 * @return a field name to value {@link Map} per matching user
+	 */
+	List<Map<String, Object>> findAllProjected(@Nullable Specification<User> spec, List<String> fields);
+	
+	/**
+	 * Selects only the given fields of at most maxResults users matching a specification,
+	 * see {@link #findAllProjected(Specification, List)}.
+	 * 
+	 * @param spec        users to select, or null for all users
+	 * @param fields      {@link User} attributes to select, in response order
+	 * @param maxResults  maximum number of users to select
+	 * @return a field name to value {@link Map} per selected user
+	 */
+	List<Map<String, Object>> findAllProjected(@Nullable Specification<User> spec, List<String> fields, int maxResults);
+
+	/**
+	 * Writes the given fields of one user with a single UPDATE ... WHERE id = ?,
+	 * without loading the user first, and increments its version. Bypasses the
+	 * persistence context, so managed copies of the user are not refreshed.
+	 * 
+	 * @param id                ID of target user
+	 * @param expectedVersions  the update only applies if the user has one of these
+	 * 	versions; null to update any version
+	 * @param fields            {@link User} attribute name to new value, only these columns are written
+	 * @return number of users updated, 0 if there is no user with that ID and version
+	 */
+	int updateFields(long id, @Nullable Collection<Long> expectedVersions, Map<String, Object> fields);
+
+}
@@ -0,0 +1,88 @@
+package com.faceit.demo.repo;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Tuple;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.CriteriaUpdate;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.faceit.demo.entity.User;
+
+public class UserRepositoryCustomImpl implements UserRepositoryCustom {
+	
+	private static final String ID = "id";
+	private static final String VERSION = "version";
+	
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Override
+	@Transactional(readOnly = true)
+	public List<Map<String, Object>> findAllProjected(Specification<User> spec, List<String> fields) {
+		return findAllProjected(spec, fields, Integer.MAX_VALUE);
+	}
+	
+	@Override
+	@Transactional(readOnly = true)
+	public List<Map<String, Object>> findAllProjected(Specification<User> spec, List<String> fields, int maxResults) {
+		CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+		CriteriaQuery<Tuple> query = builder.createTupleQuery();
+		Root<User> root = query.from(User.class);
+		
+		List<Selection<?>> selections = new ArrayList<>(fields.size());
+		for (String field : fields) {
+			selections.add(root.get(field).alias(field));
+		}
+		query.multiselect(selections);
+		if (spec != null) {
+			Predicate predicate = spec.toPredicate(root, query, builder);
+			if (predicate != null) {
+				query.where(predicate);
+			}
+		}
+		
+		List<Tuple> tuples = entityManager.createQuery(query).setMaxResults(maxResults).getResultList();
+		List<Map<String, Object>> result = new ArrayList<>(tuples.size());
+		for (Tuple tuple : tuples) {
+			Map<String, Object> row = new LinkedHashMap<>();
+			for (String field : fields) {
+				row.put(field, tuple.get(field));
+			}
+			result.add(row);
+		}
+		return result;
+	}
+
+	@Override
+	public int updateFields(long id, Collection<Long> expectedVersions, Map<String, Object> fields) {
+		CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+		CriteriaUpdate<User> update = builder.createCriteriaUpdate(User.class);
+		Root<User> root = update.from(User.class);
+		
+		for (Map.Entry<String, Object> field : fields.entrySet()) {
+			update.set(root.<Object>get(field.getKey()), field.getValue());
+		}
+		// Bulk updates bypass Hibernate's versioning, so the version is incremented here
+		Path<Long> version = root.get(VERSION);
+		update.set(version, builder.sum(version, 1L));
+		
+		Predicate byId = builder.equal(root.get(ID), id);
+		update.where(expectedVersions == null ? byId : builder.and(byId, version.in(expectedVersions)));
+		return entityManager.createQuery(update).executeUpdate();
+	}
+
+}
@@ -0,0 +1,80 @@
+package com.faceit.demo.repo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import com.faceit.demo.entity.User;
+import com.faceit.demo.util.SpecSearchCriteria;
+
+/**
+ * Compiled form of a search string: the conjunction of its OR groups, evaluated as a
+ * single AND predicate. Immutable, so one instance is shared by every request that
+ * uses the same search string. The shape of the plan is the search string without its
+ * values, e.g. "country:,firstName^|lastName^", which groups searches in metrics.
+ */
+public class UserSearchPlan implements Specification<User> {
+
+	private static final long serialVersionUID = 4218911734516019402L;
+	
+	private final UserSpecification[][] groups;
+	private final String shape;
+	
+	public UserSearchPlan(List<SpecSearchCriteria> criteria) {
+		List<List<UserSpecification>> grouped = new ArrayList<>();
+		StringBuilder shape = new StringBuilder();
+		for (SpecSearchCriteria criterion : criteria) {
+			if (!criterion.isOrPredicate() || grouped.isEmpty()) {
+				grouped.add(new ArrayList<>());
+			}
+			grouped.get(grouped.size() - 1).add(new UserSpecification(criterion));
+			if (shape.length() > 0) {
+				shape.append(criterion.isOrPredicate() ? '|' : ',');
+			}
+			shape.append(criterion.getKey()).append(criterion.getOperation());
+		}
+		this.shape = shape.toString();
+		this.groups = new UserSpecification[grouped.size()][];
+		for (int i = 0; i < groups.length; i++) {
+			groups[i] = grouped.get(i).toArray(new UserSpecification[0]);
+		}
+	}
+	
+	/**
+	 * @return the search string of the plan without its values
+	 */
+	public String getShape() {
+		return shape;
+	}
+	
+	@Override
+	public Predicate toPredicate(final Root<User> root, final CriteriaQuery<?> query, final CriteriaBuilder builder) {
+		if (groups.length == 1) {
+			return toPredicate(groups[0], root, query, builder);
+		}
+		Predicate[] predicates = new Predicate[groups.length];
+		for (int i = 0; i < groups.length; i++) {
+			predicates[i] = toPredicate(groups[i], root, query, builder);
+		}
+		return builder.and(predicates);
+	}
+	
+	private static Predicate toPredicate(UserSpecification[] group, Root<User> root, CriteriaQuery<?> query,
+			CriteriaBuilder builder) {
+		if (group.length == 1) {
+			return group[0].toPredicate(root, query, builder);
+		}
+		Predicate[] predicates = new Predicate[group.length];
+		for (int i = 0; i < group.length; i++) {
+			predicates[i] = group[i].toPredicate(root, query, builder);
+		}
+		return builder.or(predicates);
+	}
+
+}
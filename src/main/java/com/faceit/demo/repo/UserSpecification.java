@@ -2,12 +2,19 @@ package com.faceit.demo.repo;
 
 import org.springframework.data.jpa.domain.Specification;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Expression;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
 
 import com.faceit.demo.entity.User;
+import com.faceit.demo.exception.InvalidRequestException;
 import com.faceit.demo.util.SpecSearchCriteria;
 
 /**
@@ -17,8 +24,29 @@ public class UserSpecification implements Specification<User> {
 
 	private static final long serialVersionUID = -1111332731614400363L;
 	
-	private static final String EQUALITY = ":";
-	private static final String NEGATION = "!";
+	static final String EQUALITY = ":";
+	static final String NEGATION = "!";
+	static final String STARTS_WITH = "^";
+	static final String CONTAINS = "~";
+	static final String GREATER_THAN_OR_EQUAL = ">";
+	static final String LESS_THAN_OR_EQUAL = "<";
+	static final String IN = "@";
+	
+	private static final char LIKE_ESCAPE = '\\';
+	private static final String ERROR_OPERATION = "Unsupported search operation: %s";
+	
+	/** Searchable attributes of {@link User} and their types; the password is never searchable. */
+	static final Map<String, Class<?>> SEARCHABLE_KEYS;
+	static {
+		Map<String, Class<?>> keys = new LinkedHashMap<>();
+		keys.put("id", Long.class);
+		keys.put("firstName", String.class);
+		keys.put("lastName", String.class);
+		keys.put("nickName", String.class);
+		keys.put("email", String.class);
+		keys.put("country", String.class);
+		SEARCHABLE_KEYS = Collections.unmodifiableMap(keys);
+	}
 	 
 	private SpecSearchCriteria criteria;
 	
@@ -28,20 +56,47 @@ public class UserSpecification implements Specification<User> {
 	}
 
 	/**
-	 * TODO: can expand to handle much more operations such as CONTAIN, STARTS_WITH, etc.
+	 * Prefix matches are planned as LIKE 'x%', which a B-tree index on the column can
+	 * serve. Contains matches are planned as LIKE '%x%', which needs a trigram index on
+	 * the column (pg_trgm on PostgreSQL) to avoid scanning the table.
 	 */
 	@Override
+	@SuppressWarnings({ "unchecked", "rawtypes" })
 	public Predicate toPredicate(final Root<User> root, final CriteriaQuery<?> query, final CriteriaBuilder builder) {
+		String key = criteria.getKey();
+		Object value = criteria.getValue();
 		switch (criteria.getOperation()) {
 		case EQUALITY:
-			return builder.equal(root.get(criteria.getKey()), criteria.getValue());
+			return builder.equal(root.get(key), value);
 		case NEGATION:
-			return builder.notEqual(root.get(criteria.getKey()), criteria.getValue());
-//		case CONTAINS:
-//			return builder.like(root.get(criteria.getKey()), "%" + criteria.getValue() + "%");
+			return builder.notEqual(root.get(key), value);
+		case STARTS_WITH:
+			return builder.like(root.<String>get(key), escapeLike(value) + "%", LIKE_ESCAPE);
+		case CONTAINS:
+			return builder.like(root.<String>get(key), "%" + escapeLike(value) + "%", LIKE_ESCAPE);
+		case GREATER_THAN_OR_EQUAL:
+			return builder.greaterThanOrEqualTo(root.<Comparable>get(key), (Comparable) value);
+		case LESS_THAN_OR_EQUAL:
+			return builder.lessThanOrEqualTo(root.<Comparable>get(key), (Comparable) value);
+		case IN:
+			Expression<Object> path = root.get(key);
+			return path.in((Collection<?>) value);
 		default:
-			return null;
+			throw new InvalidRequestException(String.format(ERROR_OPERATION, criteria.getOperation()));
+		}
+	}
+	
+	private static String escapeLike(Object value) {
+		String text = value.toString();
+		StringBuilder escaped = new StringBuilder(text.length() + 4);
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c == '%' || c == '_' || c == LIKE_ESCAPE) {
+				escaped.append(LIKE_ESCAPE);
+			}
+			escaped.append(c);
 		}
+		return escaped.toString();
 	}
 
 }
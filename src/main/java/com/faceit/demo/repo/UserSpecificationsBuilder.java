@@ -2,11 +2,11 @@ package com.faceit.demo.repo;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 import org.springframework.data.jpa.domain.Specification;
 
 import com.faceit.demo.entity.User;
+import com.faceit.demo.exception.InvalidRequestException;
 import com.faceit.demo.util.SpecSearchCriteria;
 
 /**
@@ -19,6 +19,20 @@ public class UserSpecificationsBuilder {
         params = new ArrayList<SpecSearchCriteria>();
     }
  
+    /**
+     * To accumulate the criteria of a comma-separated search string with following
+     * format: {key}{operator}{value}. e.g. firstName:Joe,country!England.
+     * 
+     * @param criteria search string
+     * @return a {@link UserSpecificationsBuilder} holding every criterion found
+     * @throws InvalidRequestException malformed search string
+     */
+    public static UserSpecificationsBuilder parse(String criteria) throws InvalidRequestException {
+    	UserSpecificationsBuilder builder = new UserSpecificationsBuilder();
+    	builder.params.addAll(SearchCriteriaParser.parse(SearchCriteriaParser.normalize(criteria)));
+        return builder;
+    }
+ 
     public UserSpecificationsBuilder with(String key, String operation, Object value) {
         params.add(new SpecSearchCriteria(key, operation, value));
         return this;
@@ -28,17 +42,7 @@ public class UserSpecificationsBuilder {
         if (params.size() == 0) {
             return null;
         }
- 
-        List<Specification<User>> specs = params.stream()
-          .map(UserSpecification::new)
-          .collect(Collectors.toList());
-         
-        Specification<User> result = specs.get(0);
- 
-        for (int i = 1; i < params.size(); i++) {
-            result = Specification.where(result).and(specs.get(i));
-        }       
-        return result;
+        return new UserSearchPlan(params);
     }
 
 }
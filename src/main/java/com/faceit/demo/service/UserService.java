@@ -1,18 +1,65 @@
 package com.faceit.demo.service;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
 import com.faceit.demo.entity.User;
+import com.faceit.demo.exception.InvalidRequestException;
 import com.faceit.demo.exception.NoDataFoundException;
+import com.faceit.demo.exception.PreconditionFailedException;
 import com.faceit.demo.exception.UserNotCreatedException;
 import com.faceit.demo.exception.UserNotFoundException;
+import com.faceit.demo.util.BulkItemResult;
+import com.faceit.demo.util.CursorPage;
+import com.faceit.demo.util.UserBatch;
 
 public interface UserService {
 	
 	/**
-     * To list the complete data set from the User repository.
+     * To list the complete data set from the User repository, in ID order.
      *
      * @return  an {@link Iterable} of {@link User} entities
+     * @throws NoDataFoundException there is no user
+     * @throws InvalidRequestException there are more users than user.list-all.max-size
+     * @deprecated loads the whole table at once; use {@link #findPage(String, int)} or
+     * 	{@link #exportAll(Consumer)}
      */
-	public Iterable<User> findAll() throws NoDataFoundException;
+	@Deprecated
+	public Iterable<User> findAll() throws NoDataFoundException, InvalidRequestException;
+	
+	/**
+	 * To return the given fields of all {@link User} entities, without loading the
+	 * entities themselves.
+	 * 
+	 * @param fields a comma-separated list of fields, e.g. id,nickName,country
+	 * @return a field name to value {@link Map} per user
+	 * @throws NoDataFoundException there is no user
+	 * @throws InvalidRequestException unknown field, or more users than user.list-all.max-size
+	 * @deprecated loads the whole table at once; use {@link #findPage(String, int)} or
+	 * 	{@link #exportAll(Consumer)}
+	 */
+	@Deprecated
+	public List<Map<String, Object>> findAll(String fields) throws NoDataFoundException, InvalidRequestException;
+	
+	/**
+	 * To list the User repository one page at a time using keyset pagination.
+	 * 
+	 * @param after  opaque cursor returned by the previous page, null for the first page
+	 * @param limit  maximum number of users on the page
+	 * @return a {@link CursorPage} of {@link User} entities
+	 * @throws InvalidRequestException the cursor is not valid
+	 */
+	public CursorPage<User> findPage(String after, int limit) throws InvalidRequestException;
+
+	/**
+	 * To hand every {@link User} entity in the repository to a consumer, one at a time
+	 * and in ID order, without holding the data set in memory.
+	 * 
+	 * @param consumer  receives each {@link User}, which is detached once consumed
+	 */
+	public void exportAll(Consumer<User> consumer);
 
 	/**
 	 * To create user 
@@ -23,6 +70,17 @@ public interface UserService {
 	 */
 	public User create(User user) throws UserNotCreatedException;
 	
+	/**
+	 * To create many users in one transaction. Users supplied with an ID, or with an
+	 * email or nick name that is taken or used by an earlier user of the request, are
+	 * rejected individually; the others are inserted in JDBC batches.
+	 * 
+	 * @param users users to be created
+	 * @return a {@link BulkItemResult} per user, in request order
+	 * @throws InvalidRequestException too many users in one request
+	 */
+	public List<BulkItemResult> createAll(List<User> users) throws InvalidRequestException;
+	
 	/**
 	 * To find a specific {@link User} entity by its ID.
 	 * 
@@ -32,6 +90,17 @@ public interface UserService {
 	 */
 	public User findById(long id) throws UserNotFoundException;
 	
+	/**
+	 * To find many {@link User} entities by ID in one call. Cached users are served from
+	 * the cache and the others are read with a single query; concurrent calls with the
+	 * same IDs share one lookup.
+	 * 
+	 * @param ids  IDs of target users, in the order the users are to be returned
+	 * @return a {@link UserBatch} of the users found and the IDs that match no user
+	 * @throws InvalidRequestException no IDs, too many IDs or a null ID
+	 */
+	public UserBatch findAllById(List<Long> ids) throws InvalidRequestException;
+	
 	/**
 	 * To update a user
 	 * 
@@ -40,6 +109,57 @@ public interface UserService {
 	 */
 	public User update(User user);
 	
+	/**
+	 * To update a user, provided that it has not been modified since it was read
+	 * 
+	 * @param user              user to be updated
+	 * @param expectedVersions  versions the user may have, e.g. taken from an If-Match
+	 * 	header; null to update any version
+	 * @return {@link User} updated user as persisted, with its new version
+	 * @throws UserNotFoundException User not found
+	 * @throws PreconditionFailedException User has none of the expected versions
+	 */
+	public User update(User user, Collection<Long> expectedVersions)
+			throws UserNotFoundException, PreconditionFailedException;
+	
+	/**
+	 * To update only some fields of a user, leaving the others as they are.
+	 * 
+	 * @param id       ID of target user
+	 * @param changes  field name to new value, e.g. {"country": "England"}
+	 * @return {@link User} updated user
+	 * @throws UserNotFoundException User not found
+	 * @throws InvalidRequestException no change, or a field that is unknown or cannot be changed
+	 */
+	public User patch(long id, Map<String, Object> changes) throws UserNotFoundException, InvalidRequestException;
+	
+	/**
+	 * To update only some fields of a user, provided that it has not been modified
+	 * since it was read.
+	 * 
+	 * @param id                ID of target user
+	 * @param changes           field name to new value, e.g. {"country": "England"}
+	 * @param expectedVersions  versions the user may have, e.g. taken from an If-Match
+	 * 	header; null to update any version
+	 * @return {@link User} updated user
+	 * @throws UserNotFoundException User not found
+	 * @throws InvalidRequestException no change, or a field that is unknown or cannot be changed
+	 * @throws PreconditionFailedException User has none of the expected versions
+	 */
+	public User patch(long id, Map<String, Object> changes, Collection<Long> expectedVersions)
+			throws UserNotFoundException, InvalidRequestException, PreconditionFailedException;
+	
+	/**
+	 * To update many users in one transaction. Users that do not exist, or whose email
+	 * or nick name is held by another user or used by an earlier user of the request,
+	 * are reported individually; the others are updated in JDBC batches.
+	 * 
+	 * @param users users to be updated
+	 * @return a {@link BulkItemResult} per user, in request order
+	 * @throws InvalidRequestException too many users in one request
+	 */
+	public List<BulkItemResult> updateAll(List<User> users) throws InvalidRequestException;
+	
 	/**
 	 * To remove a user by ID
 	 * 
@@ -49,16 +169,41 @@ public interface UserService {
 	 */
 	public void removeById(long id) throws UserNotFoundException, NoDataFoundException; 
 	
+	/**
+	 * To remove many users by ID with a single statement. IDs that do not exist are
+	 * reported individually.
+	 * 
+	 * @param ids  IDs of target users
+	 * @return a {@link BulkItemResult} per ID, in request order
+	 * @throws InvalidRequestException too many IDs in one request
+	 */
+	public List<BulkItemResult> removeAllById(List<Long> ids) throws InvalidRequestException;
+	
 	/**
 	 * To search a list of {@link User} entities using search criteria
 	 * 
 	 * @param critera a comma-separated search string with following format: 
 	 * {key}{operator}{value}. e.g. firstName:Joe,country!England. Which means: firstName
 	 * EQUALS Joe, AND country IS-NOT England. Available {operators} are - ":" = EQUALS;
-	 *  "!" = IS-NOT;
+	 *  "!" = IS-NOT; "^" = STARTS-WITH; "~" = CONTAINS; ">" = AT-LEAST; "<" = AT-MOST;
+	 *  "@" = IN, with values separated by ";". Criteria separated by "|" instead of ","
+	 *  are OR-ed: country:England|country:Spain,firstName^Jo. Searchable keys are id,
+	 *  firstName, lastName, nickName, email and country.
 	 * 					
 	 * @return an {@link Iterable} of {@link User} entities
+	 * @throws InvalidRequestException malformed search string
+	 */
+	public Iterable<User> search(String critera) throws InvalidRequestException;
+	
+	/**
+	 * To return the given fields of the {@link User} entities matching search criteria,
+	 * without loading the entities themselves.
+	 * 
+	 * @param critera search string, see {@link #search(String)}
+	 * @param fields  a comma-separated list of fields, e.g. id,nickName,country
+	 * @return a field name to value {@link Map} per matching user
+	 * @throws InvalidRequestException malformed search string or unknown field
 	 */
-	public Iterable<User> search(String critera);
+	public List<Map<String, Object>> search(String critera, String fields) throws InvalidRequestException;
 
 }
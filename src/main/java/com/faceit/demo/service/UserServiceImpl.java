@@ -1,23 +1,61 @@
 package com.faceit.demo.service;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.EmptyResultDataAccessException;
-import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import com.faceit.demo.cache.SearchPlanCache;
+import com.faceit.demo.cache.UserCache;
 import com.faceit.demo.entity.User;
 import com.faceit.demo.event.EventPublisher;
 import com.faceit.demo.event.Events;
+import com.faceit.demo.exception.InvalidRequestException;
 import com.faceit.demo.exception.NoDataFoundException;
+import com.faceit.demo.exception.PreconditionFailedException;
 import com.faceit.demo.exception.UserNotCreatedException;
+import com.faceit.demo.exception.UserMicroserviceException;
 import com.faceit.demo.exception.UserNotFoundException;
+import com.faceit.demo.repo.SearchCriteriaParser;
 import com.faceit.demo.repo.UserRepository;
-import com.faceit.demo.repo.UserSpecificationsBuilder;
+import com.faceit.demo.repo.UserSearchPlan;
+import com.faceit.demo.util.BulkItemResult;
+import com.faceit.demo.util.BulkItemResult.Status;
+import com.faceit.demo.util.CursorPage;
+import com.faceit.demo.util.PageCursor;
+import com.faceit.demo.util.SingleFlight;
+import com.faceit.demo.util.UserBatch;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 
 @Service
 public class UserServiceImpl implements UserService {
@@ -29,21 +67,132 @@ public class UserServiceImpl implements UserService {
 	@Autowired
 	private EventPublisher eventPublisher;
 	
+	@Autowired
+	private UserCache userCache;
+	
+	@Autowired
+	private SearchPlanCache searchPlanCache;
+	
+	@PersistenceContext
+	private EntityManager entityManager;
+	
+	@Autowired
+	private MeterRegistry meterRegistry;
+	
+	@Value("${user.metrics.enabled}")
+	private boolean METRICS_ENABLED;
+	
+	private final ConcurrentMap<String, Timer> searchTimers = new ConcurrentHashMap<>();
+	private Timer otherSearchTimer;
+	
+	// Coalesce concurrent identical reads, see SingleFlight
+	private final SingleFlight<Long, User> userLookups = new SingleFlight<>();
+	private final SingleFlight<List<Long>, UserBatch> batchLookups = new SingleFlight<>();
+	private final SingleFlight<String, List<User>> searches = new SingleFlight<>();
+	private final SingleFlight<String, List<Map<String, Object>>> projectedSearches = new SingleFlight<>();
+	
+	@Value("${user.bulk.max-size}")
+	private int BULK_MAX_SIZE;
+	
+	@Value("${user.list-all.max-size}")
+	private int LIST_ALL_MAX_SIZE;
+	
+	@Value("${spring.jpa.properties.hibernate.jdbc.batch_size}")
+	private int JDBC_BATCH_SIZE;
+	
 	private static final String ERROR_USER_ID = "User must not be supplied with ID";
 	private static final String ERROR_USER_OBJ = "Error processing User entity";
-	private static final String PATTERN_MATCHING_REGEX = "(\\w+?)(:|!)(\\w+?),";
+	private static final String ERROR_USER_NO_ID = "User must be supplied with ID";
+	private static final String ERROR_BULK_SIZE = "Bulk request must contain between 1 and %d items";
+	private static final String ERROR_LIST_ALL_SIZE =
+			"There are more than %d users to list, page through them with /user/list or /user/export instead";
+	private static final int MAX_PAGE_SIZE = 500;
+	private static final int IN_CHUNK_SIZE = 1000;
+	private static final String ERROR_DUPLICATE = "%s '%s' is already taken";
+	private static final String EMAIL = "Email";
+	private static final String NICK_NAME = "Nick name";
+	private static final String FIELDS_SEPARATOR = "?fields=";
+	private static final String SEARCH_TIMER = "user.search";
+	private static final String SHAPE_NONE = "none";
+	private static final String SHAPE_OTHER = "other";
+	private static final int MAX_SEARCH_SHAPES = 100;
+	private static final String ERROR_BATCH_NULL_ID = "Batch lookup must not contain null IDs";
+	private static final String ERROR_PATCH_EMPTY = "Patch must change at least one field";
+	private static final String ERROR_PATCH_FIELD = "Field '%s' cannot be patched, expected text for one of %s";
+	private static final Set<String> PATCHABLE_FIELDS = Collections.unmodifiableSet(new LinkedHashSet<>(
+			Arrays.asList("firstName", "lastName", "nickName", "password", "email", "country")));
 	
+	@PostConstruct
+	private void registerMetrics() {
+		if (METRICS_ENABLED) {
+			userLookups.bindTo(meterRegistry, "findById");
+			batchLookups.bindTo(meterRegistry, "findAllById");
+			searches.bindTo(meterRegistry, "search");
+			projectedSearches.bindTo(meterRegistry, "searchProjected");
+			otherSearchTimer = searchTimer(SHAPE_OTHER);
+		}
+	}
+	
+	/**
+	 * Reads one user more than LIST_ALL_MAX_SIZE, so that a larger table is refused
+	 * without a count query and without loading all of it.
+	 */
 	@Override
-	public Iterable<User> findAll() throws NoDataFoundException {
+	@Transactional(readOnly = true)
+	public Iterable<User> findAll() throws NoDataFoundException, InvalidRequestException {
 		
-		Iterable<User> ships = userRepo.findAll();
-        if (ships.spliterator().getExactSizeIfKnown() <= 0) {
-            throw new NoDataFoundException();
-        }
-        return ships;
+		List<User> users = userRepo.findByIdGreaterThanOrderByIdAsc(0L, PageRequest.of(0, LIST_ALL_MAX_SIZE + 1));
+		return checkListAllSize(users);
+	}
+	
+	@Override
+	@Transactional(readOnly = true)
+	public List<Map<String, Object>> findAll(String fields) throws NoDataFoundException, InvalidRequestException {
+		List<Map<String, Object>> users = userRepo.findAllProjected(null, SearchCriteriaParser.parseFields(fields),
+				LIST_ALL_MAX_SIZE + 1);
+		return checkListAllSize(users);
+	}
+	
+	private <T> List<T> checkListAllSize(List<T> users) {
+		if (users.isEmpty()) {
+			throw new NoDataFoundException();
+		}
+		if (users.size() > LIST_ALL_MAX_SIZE) {
+			throw new InvalidRequestException(String.format(ERROR_LIST_ALL_SIZE, LIST_ALL_MAX_SIZE));
+		}
+		return users;
+	}
+	
+	@Override
+	@Transactional(readOnly = true)
+	public CursorPage<User> findPage(String after, int limit) {
+		long afterId = (after == null || after.isEmpty()) ? 0L : PageCursor.decode(after);
+		int pageSize = Math.min(Math.max(limit, 1), MAX_PAGE_SIZE);
+		
+		// Fetch one extra row to learn whether another page follows, without a count query
+		List<User> users = userRepo.findByIdGreaterThanOrderByIdAsc(afterId, PageRequest.of(0, pageSize + 1));
+		String nextCursor = null;
+		if (users.size() > pageSize) {
+			users = users.subList(0, pageSize);
+			nextCursor = PageCursor.encode(users.get(pageSize - 1).getId());
+		}
+		return new CursorPage<>(users, nextCursor);
+	}
+	
+	@Override
+	@Transactional(readOnly = true)
+	public void exportAll(Consumer<User> consumer) {
+		try (Stream<User> users = userRepo.streamAllOrderById()) {
+			users.forEach(user -> {
+				consumer.accept(user);
+				// Keep the persistence context empty so memory use does not grow with the table
+				entityManager.detach(user);
+			});
+		}
 	}
 
 	@Override
+	@Transactional
 	public User create(User user) throws UserNotCreatedException {
 		
 		if (user.getId() > 0) {
@@ -52,52 +201,293 @@ public class UserServiceImpl implements UserService {
 		
 		User result;
 		try {
+			// A version taken from the request body would make save() merge instead of persist
+			user.setVersion(null);
 			result = userRepo.save(user);
 		} catch (IllegalArgumentException ex) {
 			throw new UserNotCreatedException(ERROR_USER_OBJ);
 		}
 		
-		// Produce message to be published via Kafka
-		try {
-			eventPublisher.publishEvent(Events.USER_CREATED, result);
-		} catch (RuntimeException ex) {
-			/* TODO: Handle exceptions gracefully without affecting main function
-			*  of creating User in repository.
-			*/
-			LOG.error("Error producing USER_CREATED message via Event Publisher.");
-		}
+		// Message is stored in the outbox in this transaction and relayed to Kafka after commit
+		eventPublisher.publishEvent(Events.USER_CREATED, result);
 		return result;
 		
 	}
 
+	@Override
+	@Transactional
+	public List<BulkItemResult> createAll(List<User> users) throws InvalidRequestException {
+		checkBulkSize(users);
+		
+		Map<String, Long> emailOwners = owners(users, User::getEmail, userRepo::findEmailOwners);
+		Map<String, Long> nickNameOwners = owners(users, User::getNickName, userRepo::findNickNameOwners);
+		
+		List<BulkItemResult> results = new ArrayList<>(users.size());
+		List<User> created = new ArrayList<>(JDBC_BATCH_SIZE);
+		for (int i = 0; i < users.size(); i++) {
+			User user = users.get(i);
+			if (user == null) {
+				results.add(new BulkItemResult(i, 0, Status.REJECTED, ERROR_USER_OBJ));
+				continue;
+			}
+			if (user.getId() > 0) {
+				results.add(new BulkItemResult(i, user.getId(), Status.REJECTED, ERROR_USER_ID));
+				continue;
+			}
+			String duplicate = claimUniqueValues(user, 0, emailOwners, nickNameOwners);
+			if (duplicate != null) {
+				results.add(new BulkItemResult(i, 0, Status.REJECTED, duplicate));
+				continue;
+			}
+			// IDs come from the pooled sequence at persist time; the inserts are batched at flush
+			user.setVersion(null);
+			User result = userRepo.save(user);
+			created.add(result);
+			results.add(new BulkItemResult(i, result.getId(), Status.CREATED));
+			if (created.size() == JDBC_BATCH_SIZE) {
+				flushCreated(created);
+				created = new ArrayList<>(JDBC_BATCH_SIZE);
+			}
+		}
+		if (!created.isEmpty()) {
+			flushCreated(created);
+		}
+		return results;
+	}
+	
+	/*
+	 * IDs of the users holding the emails or nick names of a bulk request, queried in IN
+	 * lists of at most IN_CHUNK_SIZE values without loading the users.
+	 */
+	private Map<String, Long> owners(List<User> users, Function<User, String> field,
+			Function<Collection<String>, List<UserRepository.UniqueValueOwner>> finder) {
+		List<String> values = users.stream().filter(user -> user != null && field.apply(user) != null)
+				.map(field).distinct().collect(Collectors.toList());
+		Map<String, Long> owners = new HashMap<>();
+		for (int from = 0; from < values.size(); from += IN_CHUNK_SIZE) {
+			for (UserRepository.UniqueValueOwner owner
+					: finder.apply(values.subList(from, Math.min(from + IN_CHUNK_SIZE, values.size())))) {
+				owners.put(owner.getUniqueValue(), owner.getOwnerId());
+			}
+		}
+		return owners;
+	}
+	
+	/*
+	 * Checks the email and nick name of a bulk item against the table and the items
+	 * accepted before it, and claims them for the item if both are free. Bulk writes
+	 * thereby reject a duplicate on its own instead of failing the whole transaction on
+	 * a unique constraint. id is 0 for a user to be created, which owns nothing yet.
+	 * 
+	 * A value counts as taken by its current owner even if an earlier item changes it,
+	 * so values cannot be swapped within one request. A concurrent request that writes
+	 * the same value first still fails the whole transaction on the constraint.
+	 */
+	private static String claimUniqueValues(User user, long id,
+			Map<String, Long> emailOwners, Map<String, Long> nickNameOwners) {
+		if (isTaken(emailOwners, user.getEmail(), id)) {
+			return String.format(ERROR_DUPLICATE, EMAIL, user.getEmail());
+		}
+		if (isTaken(nickNameOwners, user.getNickName(), id)) {
+			return String.format(ERROR_DUPLICATE, NICK_NAME, user.getNickName());
+		}
+		if (user.getEmail() != null) {
+			emailOwners.put(user.getEmail(), id);
+		}
+		if (user.getNickName() != null) {
+			nickNameOwners.put(user.getNickName(), id);
+		}
+		return null;
+	}
+	
+	private static boolean isTaken(Map<String, Long> owners, String value, long id) {
+		Long owner = value == null ? null : owners.get(value);
+		return owner != null && (id == 0 || owner != id);
+	}
+	
+	/*
+	 * Publishes the events of one JDBC batch of created users, and writes users and
+	 * events in one flush. The persistence context is then cleared, so that it does not
+	 * grow with the size of the request and each flush only checks the latest batch.
+	 */
+	private void flushCreated(List<User> created) {
+		eventPublisher.publishEvents(Events.USER_CREATED, created);
+		entityManager.flush();
+		entityManager.clear();
+	}
+	
+	@Override
+	@Transactional
+	public List<BulkItemResult> updateAll(List<User> users) throws InvalidRequestException {
+		checkBulkSize(users);
+		
+		// Load every target in one IN query; changes are then flushed as batched UPDATEs
+		Set<Long> ids = users.stream().filter(user -> user != null && user.getId() > 0)
+				.map(User::getId).collect(Collectors.toCollection(LinkedHashSet::new));
+		Map<Long, User> existing = userRepo.findAllById(ids).stream()
+				.collect(Collectors.toMap(User::getId, Function.identity()));
+		Map<String, Long> emailOwners = owners(users, User::getEmail, userRepo::findEmailOwners);
+		Map<String, Long> nickNameOwners = owners(users, User::getNickName, userRepo::findNickNameOwners);
+		
+		List<BulkItemResult> results = new ArrayList<>(users.size());
+		Map<Long, User> updated = new LinkedHashMap<>();
+		for (int i = 0; i < users.size(); i++) {
+			User user = users.get(i);
+			if (user == null || user.getId() <= 0) {
+				results.add(new BulkItemResult(i, 0, Status.REJECTED, ERROR_USER_NO_ID));
+				continue;
+			}
+			User target = existing.get(user.getId());
+			if (target == null) {
+				results.add(new BulkItemResult(i, user.getId(), Status.NOT_FOUND));
+				continue;
+			}
+			String duplicate = claimUniqueValues(user, user.getId(), emailOwners, nickNameOwners);
+			if (duplicate != null) {
+				results.add(new BulkItemResult(i, user.getId(), Status.REJECTED, duplicate));
+				continue;
+			}
+			copyFields(user, target);
+			updated.put(target.getId(), target);
+			results.add(new BulkItemResult(i, target.getId(), Status.UPDATED));
+		}
+		
+		eventPublisher.publishEvents(Events.USER_UPDATED, updated.values());
+		afterCommit(() -> updated.keySet().forEach(userCache::evict));
+		return results;
+	}
+	
+	/**
+	 * Not transactional itself, see {@link #findAllById(List)}. Misses read from the
+	 * primary database, so that no stale replica row is cached.
+	 * 
+	 * The cache already makes concurrent misses on an existing ID share one load.
+	 * A load that finds no user caches nothing though, so callers waiting on it would
+	 * each run the query again in turn; the SingleFlight lets concurrent lookups of a
+	 * missing ID share one query as well.
+	 * 
+	 * The cached entity is shared by every reader, so each caller gets a copy of its own.
+	 */
 	@Override
 	public User findById(long id) throws UserNotFoundException {
 		
-		return userRepo.findById(id).orElseThrow(() -> new UserNotFoundException(id));
+		User user = userCache.getIfPresent(id);
+		if (user == null) {
+			user = userLookups.execute(id, () -> userCache.get(id, key -> userRepo.findByIdOnPrimary(key).orElse(null)));
+		}
+		if (user == null) {
+			throw new UserNotFoundException(id);
+		}
+		return new User(user);
 	}
 
+	/**
+	 * Not transactional itself: coalesced callers wait without holding a connection,
+	 * and the one repository query runs in a read-only transaction of its own.
+	 */
+	@Override
+	public UserBatch findAllById(List<Long> ids) throws InvalidRequestException {
+		checkBulkSize(ids);
+		if (ids.contains(null)) {
+			throw new InvalidRequestException(ERROR_BATCH_NULL_ID);
+		}
+		return batchLookups.execute(new ArrayList<>(ids), () -> lookupAll(ids));
+	}
+	
+	private UserBatch lookupAll(List<Long> ids) {
+		Set<Long> uniqueIds = new LinkedHashSet<>(ids);
+		Map<Long, User> found = new HashMap<>(uniqueIds.size() * 2);
+		List<Long> uncachedIds = new ArrayList<>();
+		for (Long id : uniqueIds) {
+			User user = userCache.getIfPresent(id);
+			if (user != null) {
+				// Not the cached entity itself, which other readers share
+				found.put(id, new User(user));
+			} else {
+				uncachedIds.add(id);
+			}
+		}
+		if (!uncachedIds.isEmpty()) {
+			// A single SELECT ... WHERE id IN (...) for all cache misses
+			for (User user : userRepo.findAllById(uncachedIds)) {
+				found.put(user.getId(), user);
+			}
+		}
+		List<User> users = new ArrayList<>(found.size());
+		List<Long> missingIds = new ArrayList<>();
+		for (Long id : uniqueIds) {
+			User user = found.get(id);
+			if (user != null) {
+				users.add(user);
+			} else {
+				missingIds.add(id);
+			}
+		}
+		// Shared by coalesced callers
+		return new UserBatch(Collections.unmodifiableList(users), Collections.unmodifiableList(missingIds));
+	}
+	
 	@Override
+	@Transactional
 	public User update(User user) throws UserNotFoundException {
-		User result;
-		if (userRepo.existsById(user.getId())) {
-			result = userRepo.save(user);
-		} else {
-			throw new UserNotFoundException(user.getId());
+		return update(user, null);
+	}
+	
+	@Override
+	@Transactional
+	public User update(User user, Collection<Long> expectedVersions)
+			throws UserNotFoundException, PreconditionFailedException {
+		// A single UPDATE ... WHERE id = ? [AND version IN (...)], whose row count tells
+		// whether the user exists in an expected version
+		boolean updated = (expectedVersions == null || !expectedVersions.isEmpty())
+				&& userRepo.updateFields(user.getId(), expectedVersions, fieldsOf(user)) > 0;
+		if (!updated) {
+			throw updateFailure(user.getId(), expectedVersions);
 		}
+		// The UPDATE bypassed the persistence context, so this reads the updated row
+		User result = userRepo.findById(user.getId()).orElseThrow(() -> new UserNotFoundException(user.getId()));
 		
-		// Produce message to be published via Kafka
-		try {
-			eventPublisher.publishEvent(Events.USER_UPDATED, result);
-		} catch (RuntimeException ex) {
-			/* TODO: Handle exceptions gracefully without affecting main function
-			*  of updating User in repository.
-			*/
-			LOG.error("Error producing USER_UPDATED message via Event Publisher.");
+		// Message is stored in the outbox in this transaction and relayed to Kafka after commit
+		eventPublisher.publishEvent(Events.USER_UPDATED, result);
+		afterCommit(() -> userCache.evict(result.getId()));
+		return result;
+	}
+	
+	@Override
+	@Transactional
+	public User patch(long id, Map<String, Object> changes) throws UserNotFoundException, InvalidRequestException {
+		return patch(id, changes, null);
+	}
+	
+	@Override
+	@Transactional
+	public User patch(long id, Map<String, Object> changes, Collection<Long> expectedVersions)
+			throws UserNotFoundException, InvalidRequestException, PreconditionFailedException {
+		if (changes == null || changes.isEmpty()) {
+			throw new InvalidRequestException(ERROR_PATCH_EMPTY);
+		}
+		for (Map.Entry<String, Object> change : changes.entrySet()) {
+			if (!PATCHABLE_FIELDS.contains(change.getKey())
+					|| (change.getValue() != null && !(change.getValue() instanceof String))) {
+				throw new InvalidRequestException(String.format(ERROR_PATCH_FIELD, change.getKey(), PATCHABLE_FIELDS));
+			}
 		}
+		// Only the changed columns are written
+		boolean updated = (expectedVersions == null || !expectedVersions.isEmpty())
+				&& userRepo.updateFields(id, expectedVersions, changes) > 0;
+		if (!updated) {
+			throw updateFailure(id, expectedVersions);
+		}
+		// The UPDATE bypassed the persistence context, so this reads the updated row
+		User result = userRepo.findById(id).orElseThrow(() -> new UserNotFoundException(id));
+		
+		eventPublisher.publishEvent(Events.USER_UPDATED, result);
+		afterCommit(() -> userCache.evict(id));
 		return result;
 	}
 
 	@Override
+	@Transactional
 	public void removeById(long id) {
 		try {
 			userRepo.deleteById(id);
@@ -107,34 +497,150 @@ public class UserServiceImpl implements UserService {
             throw new UserNotFoundException(id);
         }
 		
-		// Produce message to be published via Kafka
-		try {
-			eventPublisher.publishEvent(Events.USER_DELETED, String.valueOf(id));
-		} catch (RuntimeException ex) {
-			/* TODO: Handle exceptions gracefully without affecting main function
-			*  of deleting User from repository.
-			*/
-			LOG.error("Error producing USER_DELETED message via Event Publisher.");
+		// Message is stored in the outbox in this transaction and relayed to Kafka after commit
+		eventPublisher.publishEvent(Events.USER_DELETED, id);
+		afterCommit(() -> userCache.evict(id));
+		
+	}
+
+	@Override
+	@Transactional
+	public List<BulkItemResult> removeAllById(List<Long> ids) throws InvalidRequestException {
+		checkBulkSize(ids);
+		
+		// Neither the existing IDs nor the deletes load entities; both use IN lists of at
+		// most IN_CHUNK_SIZE IDs, so that no statement grows with the request
+		List<Long> targetIds = ids.stream().filter(id -> id != null).distinct().collect(Collectors.toList());
+		Set<Long> foundIds = new LinkedHashSet<>(targetIds.size());
+		for (int from = 0; from < targetIds.size(); from += IN_CHUNK_SIZE) {
+			List<Long> chunk = targetIds.subList(from, Math.min(from + IN_CHUNK_SIZE, targetIds.size()));
+			List<Long> existingIds = userRepo.findExistingIds(chunk);
+			if (!existingIds.isEmpty()) {
+				userRepo.deleteByIds(existingIds);
+				foundIds.addAll(existingIds);
+			}
+		}
+		
+		List<BulkItemResult> results = new ArrayList<>(ids.size());
+		for (int i = 0; i < ids.size(); i++) {
+			Long id = ids.get(i);
+			if (id == null) {
+				results.add(new BulkItemResult(i, 0, Status.REJECTED, ERROR_USER_NO_ID));
+			} else {
+				results.add(new BulkItemResult(i, id, foundIds.contains(id) ? Status.DELETED : Status.NOT_FOUND));
+			}
 		}
 		
+		eventPublisher.publishEventsById(Events.USER_DELETED, foundIds);
+		afterCommit(() -> foundIds.forEach(userCache::evict));
+		return results;
 	}
 
+	/**
+	 * Not transactional itself, see {@link #findAllById(List)}. Concurrent searches with
+	 * the same normalized criteria share one repository query, and therefore one result
+	 * list, which is unmodifiable.
+	 */
 	@Override
 	public Iterable<User> search(String critera) {
-		UserSpecificationsBuilder builder = new UserSpecificationsBuilder();
-		
-		/* To de-construct comma-separated search criteria by matching patterns
-		 * Added Pattern.UNICODE_CHARACTER_CLASS to support non-English systems */
-        Pattern pattern = Pattern.compile(PATTERN_MATCHING_REGEX, Pattern.UNICODE_CHARACTER_CLASS);
-        Matcher matcher = pattern.matcher(critera + ",");
-        
-        while (matcher.find()) {
-        	// Accumulate search criteria: 1=key; 2=operator; 3=value;
-            builder.with(matcher.group(1), matcher.group(2), matcher.group(3));
-        }
-        
-        Specification<User> spec = builder.build();
-        return userRepo.findAll(spec);
+        String normalized = SearchCriteriaParser.normalize(critera);
+        UserSearchPlan plan = searchPlanCache.getNormalized(normalized);
+        return timeSearch(plan, () ->
+        		searches.execute(normalized, () -> Collections.unmodifiableList(userRepo.findAll(plan))));
+	}
+	
+	@Override
+	public List<Map<String, Object>> search(String critera, String fields) {
+		List<String> projection = SearchCriteriaParser.parseFields(fields);
+		String normalized = SearchCriteriaParser.normalize(critera);
+		UserSearchPlan plan = searchPlanCache.getNormalized(normalized);
+		String key = normalized + FIELDS_SEPARATOR + String.join(",", projection);
+		return timeSearch(plan, () -> projectedSearches.execute(key,
+				() -> Collections.unmodifiableList(userRepo.findAllProjected(plan, projection))));
+	}
+	
+	/**
+	 * Times a search with the user.search timer of its criteria shape, e.g.
+	 * "country:,firstName^". Shapes beyond the first MAX_SEARCH_SHAPES are not kept
+	 * and share the "other" timer, so that unusual criteria can neither grow the map
+	 * nor create unbounded time series.
+	 */
+	private <T> T timeSearch(UserSearchPlan plan, Supplier<T> search) {
+		if (!METRICS_ENABLED) {
+			return search.get();
+		}
+		String shape = (plan == null) ? SHAPE_NONE : plan.getShape();
+		Timer timer = searchTimers.get(shape);
+		if (timer == null) {
+			// New shapes stop being added once the cap is reached; the size check races,
+			// so the map may overshoot by the number of concurrent callers at most
+			timer = (searchTimers.size() < MAX_SEARCH_SHAPES)
+					? searchTimers.computeIfAbsent(shape, this::searchTimer)
+					: otherSearchTimer;
+		}
+		return timer.record(search);
+	}
+	
+	private Timer searchTimer(String shape) {
+		return Timer.builder(SEARCH_TIMER).tag("shape", shape).register(meterRegistry);
+	}
+	
+	private void checkBulkSize(List<?> items) throws InvalidRequestException {
+		if (items == null || items.isEmpty() || items.size() > BULK_MAX_SIZE) {
+			throw new InvalidRequestException(String.format(ERROR_BULK_SIZE, BULK_MAX_SIZE));
+		}
+	}
+	
+	/**
+	 * Tells a missing user from a user in another version than expected. Only runs once
+	 * a conditional update has failed, so successful updates never pay for it.
+	 */
+	private UserMicroserviceException updateFailure(long id, Collection<Long> expectedVersions) {
+		if (expectedVersions != null && userRepo.existsById(id)) {
+			return new PreconditionFailedException(id);
+		}
+		return new UserNotFoundException(id);
+	}
+	
+	private static Map<String, Object> fieldsOf(User user) {
+		Map<String, Object> fields = new LinkedHashMap<>();
+		fields.put("firstName", user.getFirstName());
+		fields.put("lastName", user.getLastName());
+		fields.put("nickName", user.getNickName());
+		fields.put("password", user.getPassword());
+		fields.put("email", user.getEmail());
+		fields.put("country", user.getCountry());
+		return fields;
+	}
+	
+	private static void copyFields(User source, User target) {
+		target.setFirstName(source.getFirstName());
+		target.setLastName(source.getLastName());
+		target.setNickName(source.getNickName());
+		target.setPassword(source.getPassword());
+		target.setEmail(source.getEmail());
+		target.setCountry(source.getCountry());
+	}
+	
+	/**
+	 * Runs the action once the current transaction has committed. Cache evictions must
+	 * wait for the commit, otherwise a concurrent read could cache the old row again.
+	 */
+	private static void afterCommit(Runnable action) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			action.run();
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+			@Override
+			public void afterCommit() {
+				try {
+					action.run();
+				} catch (RuntimeException ex) {
+					LOG.error("Error running post-commit action.", ex);
+				}
+			}
+		});
 	}
 
 }
@@ -0,0 +1,46 @@
+package com.faceit.demo.util;
+
+/**
+ * Outcome of one item of a bulk operation. {@code index} is the position of the item
+ * in the request, so that clients can match results to what they sent.
+ */
+public class BulkItemResult {
+	
+	public enum Status {
+		CREATED, UPDATED, DELETED, NOT_FOUND, REJECTED
+	}
+	
+	private final int index;
+	private final long id;
+	private final Status status;
+	private final String message;
+	
+	public BulkItemResult(int index, long id, Status status, String message) {
+		super();
+		this.index = index;
+		this.id = id;
+		this.status = status;
+		this.message = message;
+	}
+	
+	public BulkItemResult(int index, long id, Status status) {
+		this(index, id, status, null);
+	}
+	
+	public int getIndex() {
+		return index;
+	}
+	
+	public long getId() {
+		return id;
+	}
+	
+	public Status getStatus() {
+		return status;
+	}
+	
+	public String getMessage() {
+		return message;
+	}
+	
+}
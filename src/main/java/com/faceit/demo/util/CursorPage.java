@@ -0,0 +1,28 @@
+package com.faceit.demo.util;
+
+import java.util.List;
+
+/**
+ * One page of a keyset (cursor) paginated listing. {@code nextCursor} is an opaque
+ * token to pass back as the {@code after} parameter, and is null on the last page.
+ */
+public class CursorPage<T> {
+	
+	private final List<T> content;
+	private final String nextCursor;
+	
+	public CursorPage(List<T> content, String nextCursor) {
+		super();
+		this.content = content;
+		this.nextCursor = nextCursor;
+	}
+	
+	public List<T> getContent() {
+		return content;
+	}
+	
+	public String getNextCursor() {
+		return nextCursor;
+	}
+	
+}
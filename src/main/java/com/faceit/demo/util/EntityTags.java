@@ -0,0 +1,50 @@
+package com.faceit.demo.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.faceit.demo.exception.InvalidRequestException;
+
+/**
+ * Maps entity versions to the ETags of conditional requests. The ETag of a version
+ * is the version number in quotes, e.g. "3".
+ */
+public final class EntityTags {
+	
+	private static final String ANY = "*";
+	private static final String WEAK_PREFIX = "W/";
+	private static final String ERROR_TAG = "Invalid entity tag: %s";
+	
+	private EntityTags() {}
+	
+	/**
+	 * To parse an If-Match header into the versions it accepts. Weak tags never match,
+	 * as If-Match uses the strong comparison.
+	 * 
+	 * @param ifMatch If-Match header value, may be null
+	 * @return accepted versions, possibly empty; null if any version is accepted
+	 * @throws InvalidRequestException a tag is not a quoted version number
+	 */
+	public static List<Long> parseIfMatch(String ifMatch) throws InvalidRequestException {
+		if (ifMatch == null || ifMatch.trim().equals(ANY)) {
+			return null;
+		}
+		List<Long> versions = new ArrayList<>();
+		for (String tag : ifMatch.split(",")) {
+			tag = tag.trim();
+			if (tag.startsWith(WEAK_PREFIX)) {
+				continue;
+			}
+			if (tag.length() < 3 || tag.charAt(0) != '"' || tag.charAt(tag.length() - 1) != '"') {
+				throw new InvalidRequestException(String.format(ERROR_TAG, tag));
+			}
+			try {
+				versions.add(Long.valueOf(tag.substring(1, tag.length() - 1)));
+			} catch (NumberFormatException ex) {
+				throw new InvalidRequestException(String.format(ERROR_TAG, tag));
+			}
+		}
+		return versions;
+	}
+
+}
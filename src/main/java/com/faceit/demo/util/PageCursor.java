@@ -0,0 +1,41 @@
+package com.faceit.demo.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import com.faceit.demo.exception.InvalidRequestException;
+
+/**
+ * Encodes the position of a keyset page as an opaque, URL-safe token so that clients
+ * do not depend on (or tamper with) the underlying ID ordering.
+ */
+public final class PageCursor {
+	
+	private static final String PREFIX = "id:";
+	private static final String ERROR_CURSOR = "Invalid page cursor.";
+	
+	private PageCursor() {}
+	
+	public static String encode(long lastId) {
+		return Base64.getUrlEncoder().withoutPadding()
+				.encodeToString((PREFIX + lastId).getBytes(StandardCharsets.UTF_8));
+	}
+	
+	public static long decode(String cursor) throws InvalidRequestException {
+		try {
+			String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+			if (!decoded.startsWith(PREFIX)) {
+				throw new InvalidRequestException(ERROR_CURSOR);
+			}
+			long lastId = Long.parseLong(decoded.substring(PREFIX.length()));
+			if (lastId < 0) {
+				throw new InvalidRequestException(ERROR_CURSOR);
+			}
+			return lastId;
+		} catch (IllegalArgumentException ex) {
+			// Also covers NumberFormatException
+			throw new InvalidRequestException(ERROR_CURSOR);
+		}
+	}
+	
+}
@@ -0,0 +1,99 @@
+package com.faceit.demo.util;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Coalesces concurrent calls with equal keys: the first caller runs the call, and
+ * callers arriving while it is in flight wait for and share its result or exception.
+ * Nothing is cached; the next call after completion runs again.
+ *
+ * Calls are tracked in a {@link ConcurrentHashMap}, which only locks the bin of the key
+ * while a call is registered or removed, and callers wait on the future of their own
+ * key, so calls with unrelated keys never contend.
+ *
+ * @param <K> key of a call, with equals and hashCode
+ * @param <V> result of a call
+ */
+public class SingleFlight<K, V> {
+
+	private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+	private final LongAdder coalesced = new LongAdder();
+	
+	/**
+	 * Publishes the number of calls that joined a call in flight as user.reads.coalesced
+	 * and the number of calls in flight as user.reads.in-flight, both tagged with the
+	 * operation.
+	 *
+	 * @param meterRegistry registry to publish to
+	 * @param operation     name of the coalesced operation, e.g. findById
+	 */
+	public void bindTo(MeterRegistry meterRegistry, String operation) {
+		FunctionCounter.builder("user.reads.coalesced", coalesced, LongAdder::doubleValue)
+				.tag("operation", operation)
+				.description("The number of reads that shared the result of an identical read in flight")
+				.register(meterRegistry);
+		Gauge.builder("user.reads.in-flight", inFlight, ConcurrentMap::size)
+				.tag("operation", operation)
+				.description("The number of distinct reads in flight")
+				.register(meterRegistry);
+	}
+	
+	/**
+	 * @return the number of calls that joined a call in flight so far
+	 */
+	public long coalescedCount() {
+		return coalesced.sum();
+	}
+
+	/**
+	 * Runs the call, or joins an identical call already in flight.
+	 *
+	 * @param key  identifies the call
+	 * @param call the call, run on the calling thread if no identical call is in flight
+	 * @return result of the call
+	 */
+	public V execute(K key, Supplier<V> call) {
+		CompletableFuture<V> flight = new CompletableFuture<>();
+		CompletableFuture<V> leader = inFlight.putIfAbsent(key, flight);
+		if (leader != null) {
+			coalesced.increment();
+			return join(leader);
+		}
+		try {
+			V result = call.get();
+			flight.complete(result);
+			return result;
+		} catch (RuntimeException | Error ex) {
+			flight.completeExceptionally(ex);
+			throw ex;
+		} finally {
+			inFlight.remove(key, flight);
+		}
+	}
+
+	private static <V> V join(CompletableFuture<V> leader) {
+		try {
+			return leader.join();
+		} catch (CompletionException ex) {
+			// Rethrow what the leading call threw, e.g. UserNotFoundException
+			Throwable cause = ex.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw ex;
+		}
+	}
+
+}
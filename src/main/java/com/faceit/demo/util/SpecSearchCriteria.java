@@ -5,6 +5,7 @@ public class SpecSearchCriteria {
 	private String key;
     private String operation;
     private Object value;
+    private boolean orPredicate;
     
 	public SpecSearchCriteria(String key, String operation, Object value) {
 		super();
@@ -13,6 +14,11 @@ public class SpecSearchCriteria {
 		this.value = value;
 	}
 	
+	public SpecSearchCriteria(String key, String operation, Object value, boolean orPredicate) {
+		this(key, operation, value);
+		this.orPredicate = orPredicate;
+	}
+	
 	public String getKey() {
 		return key;
 	}
@@ -31,5 +37,14 @@ public class SpecSearchCriteria {
 	public void setValue(Object value) {
 		this.value = value;
 	}
+	/**
+	 * @return true if this criterion is OR-ed with the one before it, rather than AND-ed
+	 */
+	public boolean isOrPredicate() {
+		return orPredicate;
+	}
+	public void setOrPredicate(boolean orPredicate) {
+		this.orPredicate = orPredicate;
+	}
     
 }
@@ -0,0 +1,30 @@
+package com.faceit.demo.util;
+
+import java.util.List;
+
+import com.faceit.demo.entity.User;
+
+/**
+ * Result of a batch lookup by ID: the users found, in the order their IDs were first
+ * requested, and the requested IDs that match no user.
+ */
+public class UserBatch {
+
+	private final List<User> users;
+	private final List<Long> missingIds;
+
+	public UserBatch(List<User> users, List<Long> missingIds) {
+		super();
+		this.users = users;
+		this.missingIds = missingIds;
+	}
+
+	public List<User> getUsers() {
+		return users;
+	}
+
+	public List<Long> getMissingIds() {
+		return missingIds;
+	}
+
+}
@@ -0,0 +1,53 @@
+package com.faceit.demo.util;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Creates virtual-thread executors when the JVM provides them (Java 21 or later). The
+ * project is compiled for Java 8, so the JDK method is looked up reflectively.
+ */
+public final class VirtualThreads {
+
+	private static final String FACTORY_METHOD = "newVirtualThreadPerTaskExecutor";
+	private static final String ERROR_UNSUPPORTED = "Virtual threads require Java 21 or later, running on %s";
+	private static final Method NEW_EXECUTOR = lookupFactoryMethod();
+
+	private VirtualThreads() {}
+
+	private static Method lookupFactoryMethod() {
+		try {
+			return Executors.class.getMethod(FACTORY_METHOD);
+		} catch (NoSuchMethodException ex) {
+			return null;
+		}
+	}
+
+	/**
+	 * @return true if the running JVM can create virtual threads
+	 */
+	public static boolean isSupported() {
+		return NEW_EXECUTOR != null;
+	}
+
+	/**
+	 * To create an executor that starts a new virtual thread for each task.
+	 *
+	 * @return a virtual-thread-per-task executor
+	 * @throws IllegalStateException the running JVM does not support virtual threads
+	 */
+	public static ExecutorService newVirtualThreadPerTaskExecutor() throws IllegalStateException {
+		if (NEW_EXECUTOR == null) {
+			throw new IllegalStateException(String.format(ERROR_UNSUPPORTED, System.getProperty("java.version")));
+		}
+		try {
+			return (ExecutorService) NEW_EXECUTOR.invoke(null);
+		} catch (IllegalAccessException | InvocationTargetException ex) {
+			// e.g. Java 19/20, where virtual threads are a preview feature
+			throw new IllegalStateException(String.format(ERROR_UNSUPPORTED, System.getProperty("java.version")), ex);
+		}
+	}
+
+}
@@ -0,0 +1,33 @@
+-- Users. The table is not named "user", which is reserved in PostgreSQL.
+-- Sequences increment by the allocationSize of the entity mappings, so that Hibernate
+-- hands out a block of IDs per round trip and can batch inserts.
+CREATE SEQUENCE user_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE users (
+	id BIGINT NOT NULL,
+	first_name VARCHAR(255),
+	last_name VARCHAR(255),
+	nick_name VARCHAR(255),
+	password VARCHAR(255),
+	email VARCHAR(255),
+	country VARCHAR(255),
+	CONSTRAINT pk_users PRIMARY KEY (id),
+	-- unique constraints are backed by indexes, which also serve email and nickName searches
+	CONSTRAINT uk_user_email UNIQUE (email),
+	CONSTRAINT uk_user_nick_name UNIQUE (nick_name)
+);
+
+CREATE INDEX idx_user_country ON users (country);
+CREATE INDEX idx_user_last_name ON users (last_name);
+CREATE INDEX idx_user_first_name ON users (first_name);
+
+-- Transactional outbox of user events, relayed to Kafka in ID order
+CREATE SEQUENCE outbox_event_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE outbox_event (
+	id BIGINT NOT NULL,
+	aggregate_id BIGINT NOT NULL,
+	payload BYTEA,
+	created_at TIMESTAMP,
+	CONSTRAINT pk_outbox_event PRIMARY KEY (id)
+);
@@ -0,0 +1,2 @@
+-- Optimistic concurrency: the version of a user is incremented by every update
+ALTER TABLE users ADD COLUMN version BIGINT DEFAULT 0 NOT NULL;
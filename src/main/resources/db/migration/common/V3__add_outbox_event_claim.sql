@@ -0,0 +1,3 @@
+-- Lease of a relay on an outbox event: the relay claims events in a short transaction
+-- and sends them to Kafka after the commit, without holding row locks
+ALTER TABLE outbox_event ADD COLUMN claimed_until TIMESTAMP;
@@ -0,0 +1,11 @@
+-- Order in which outbox events were written. IDs are handed out by Hibernate in blocks of
+-- 50 per instance, so a later event can get a lower ID than an earlier one; the sequence
+-- number is instead drawn by the database as each row is inserted. The relay sends events
+-- in this order.
+CREATE SEQUENCE outbox_event_sequence_number_seq START WITH 1 INCREMENT BY 1;
+
+ALTER TABLE outbox_event ADD COLUMN sequence_number BIGINT DEFAULT nextval('outbox_event_sequence_number_seq') NOT NULL;
+
+CREATE INDEX idx_outbox_event_sequence_number ON outbox_event (sequence_number);
+
+ALTER TABLE outbox_event DROP COLUMN created_at;
@@ -0,0 +1,8 @@
+-- Trigram indexes serve the LIKE '%x%' plans of CONTAINS searches, which a B-tree
+-- index cannot. They also serve LIKE 'x%' under a non-C collation.
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX idx_user_first_name_trgm ON users USING gin (first_name gin_trgm_ops);
+CREATE INDEX idx_user_last_name_trgm ON users USING gin (last_name gin_trgm_ops);
+CREATE INDEX idx_user_nick_name_trgm ON users USING gin (nick_name gin_trgm_ops);
+CREATE INDEX idx_user_email_trgm ON users USING gin (email gin_trgm_ops);
@@ -5,6 +5,7 @@ import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.hasKey;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
 
 import java.util.Map;
 
@@ -23,6 +24,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
 import org.springframework.kafka.listener.ContainerProperties;
@@ -66,6 +68,7 @@ public class UserMicroserviceIT {
 	private static final String CREATE_USER_ENDPOINT = "/create";
 	private static final String READ_USER_ENDPOINT = "/find/id/";
 	private static final String UPDATE_USER_ENDPOINT = "/update";
+	private static final String PATCH_USER_ENDPOINT = "/update/";
 	private static final String DELETE_USER_ENDPOINT = "/remove/";
 	private static final String SEARCH_USER_ENDPOINT = "/search?criteria=";
 	
@@ -238,4 +241,65 @@ public class UserMicroserviceIT {
 				.assertThat().statusCode(equalTo(HttpStatus.NOT_FOUND.value()));
 	}
 
+	@Test
+	@Order(14)
+	public void givenUserWithTakenEmail_whenCreateUser_thenReturnStatusCode409() {
+		RestAssured.defaultParser = Parser.JSON;
+		User user = new User("Joseph", "Cole", "JoeC", "password", "j.cole@cfc.com", "England");
+		given().contentType(ContentType.JSON).body(user)
+				.when().post(BASE_USER_ROUTE + CREATE_USER_ENDPOINT).then()
+				.assertThat().statusCode(equalTo(HttpStatus.CONFLICT.value()));
+	}
+
+	@Test
+	@Order(15)
+	public void givenChangedNickName_whenPatchUser_thenReturnUserWithOnlyThatFieldChanged() {
+		RestAssured.defaultParser = Parser.JSON;
+		given().contentType(ContentType.JSON).body("{\"nickName\":\"Sadio\"}")
+				.when().patch(BASE_USER_ROUTE + PATCH_USER_ENDPOINT + 4).then()
+				.assertThat().statusCode(equalTo(HttpStatus.OK.value()))
+				.assertThat().body("nickName", is("Sadio"))
+				.assertThat().body("email", is("s.mane@lfc.com"))
+				.assertThat().body("country", is("Senegal"));
+	}
+	
+	@Test
+	@Order(16)
+	public void givenInvalidUserId_whenPatchUser_thenReturnStatusCode404() {
+		RestAssured.defaultParser = Parser.JSON;
+		given().contentType(ContentType.JSON).body("{\"nickName\":\"Sadio\"}")
+				.when().patch(BASE_USER_ROUTE + PATCH_USER_ENDPOINT + 99).then()
+				.assertThat().statusCode(equalTo(HttpStatus.NOT_FOUND.value()));
+	}
+	
+	@Test
+	@Order(17)
+	public void givenIdField_whenPatchUser_thenReturnStatusCode400() {
+		RestAssured.defaultParser = Parser.JSON;
+		given().contentType(ContentType.JSON).body("{\"id\":5}")
+				.when().patch(BASE_USER_ROUTE + PATCH_USER_ENDPOINT + 4).then()
+				.assertThat().statusCode(equalTo(HttpStatus.BAD_REQUEST.value()));
+	}
+
+	@Test
+	@Order(18)
+	public void givenStaleAndCurrentETag_whenUpdateUser_thenReturnStatusCode412ThenStatusCode200() {
+		RestAssured.defaultParser = Parser.JSON;
+		String eTag = given().when().get(BASE_USER_ROUTE + READ_USER_ENDPOINT + 4).then()
+				.assertThat().statusCode(equalTo(HttpStatus.OK.value()))
+				.extract().header(HttpHeaders.ETAG);
+		User user = new User(4l, "Sadio", "Mane", "Sadio", "password", "s.mane@lfc.com", "Senegal");
+		
+		given().contentType(ContentType.JSON).header(HttpHeaders.IF_MATCH, "\"999\"").body(user)
+				.when().put(BASE_USER_ROUTE + UPDATE_USER_ENDPOINT).then()
+				.assertThat().statusCode(equalTo(HttpStatus.PRECONDITION_FAILED.value()));
+		given().contentType(ContentType.JSON).header(HttpHeaders.IF_MATCH, eTag).body(user)
+				.when().put(BASE_USER_ROUTE + UPDATE_USER_ENDPOINT).then()
+				.assertThat().statusCode(equalTo(HttpStatus.OK.value()))
+				.assertThat().header(HttpHeaders.ETAG, not(equalTo(eTag)));
+		given().header(HttpHeaders.IF_NONE_MATCH, eTag)
+				.when().get(BASE_USER_ROUTE + READ_USER_ENDPOINT + 4).then()
+				.assertThat().statusCode(equalTo(HttpStatus.OK.value()));
+	}
+
 }
@@ -0,0 +1,110 @@
+package com.faceit.demo.benchmark;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.MutablePropertySources;
+import org.springframework.core.io.support.ResourcePropertySource;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.util.concurrent.ListenableFuture;
+
+import com.faceit.demo.event.KafkaProducerConfig;
+
+/**
+ * Measures events/sec acknowledged by an embedded broker for each producer profile,
+ * using the producer built by {@link KafkaProducerConfig}. Each invocation sends a
+ * burst of events the way the outbox relay does, and waits for all of them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class KafkaProducerBenchmark {
+	
+	private static final String TOPIC = "USER_TOPIC";
+	private static final int BURST_SIZE = 1000;
+	private static final String MESSAGE = "{\"event\":\"USER CREATED\",\"user\":\"{\\\"id\\\":1,"
+			+ "\\\"firstName\\\":\\\"Frank\\\",\\\"lastName\\\":\\\"Lampard\\\",\\\"nickName\\\":"
+			+ "\\\"Super Frank\\\",\\\"password\\\":\\\"password\\\",\\\"email\\\":"
+			+ "\\\"f.lampard@cfc.com\\\",\\\"country\\\":\\\"England\\\"}\"}";
+	private static final byte[] MESSAGE_BYTES = MESSAGE.getBytes(StandardCharsets.UTF_8);
+	
+	/** Spring profile of the producer settings, "default" for application.properties alone. */
+	@Param({"default", "throughput"})
+	public String profile;
+	
+	/** Overrides the compression codec of the profile, "profile" keeps it. */
+	@Param({"profile", "zstd"})
+	public String compression;
+	
+	private EmbeddedKafkaBroker broker;
+	private AnnotationConfigApplicationContext context;
+	private KafkaTemplate<String, byte[]> kafkaTemplate;
+	
+	@Setup(Level.Trial)
+	@SuppressWarnings("unchecked")
+	public void setup() throws IOException {
+		broker = new EmbeddedKafkaBroker(1, false, 1, TOPIC);
+		broker.afterPropertiesSet();
+		
+		context = new AnnotationConfigApplicationContext();
+		MutablePropertySources sources = context.getEnvironment().getPropertySources();
+		sources.addFirst(new MapPropertySource("benchmark",
+				Collections.singletonMap("kafka.address", broker.getBrokersAsString())));
+		if (!"profile".equals(compression)) {
+			sources.addFirst(new MapPropertySource("compression",
+					Collections.singletonMap("kafka.producer.compression-type", compression)));
+		}
+		if (!"default".equals(profile)) {
+			sources.addLast(new ResourcePropertySource("classpath:application-" + profile + ".properties"));
+		}
+		sources.addLast(new ResourcePropertySource("classpath:application.properties"));
+		context.register(KafkaProducerConfig.class);
+		context.refresh();
+		kafkaTemplate = context.getBean(KafkaTemplate.class);
+	}
+	
+	@TearDown(Level.Trial)
+	public void teardown() {
+		context.close();
+		broker.destroy();
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(BURST_SIZE)
+	public void sendBurst() throws InterruptedException, ExecutionException {
+		List<ListenableFuture<SendResult<String, byte[]>>> sends = new ArrayList<>(BURST_SIZE);
+		for (int i = 0; i < BURST_SIZE; i++) {
+			sends.add(kafkaTemplate.send(TOPIC, MESSAGE_BYTES));
+		}
+		for (ListenableFuture<SendResult<String, byte[]>> send : sends) {
+			send.get();
+		}
+	}
+
+}
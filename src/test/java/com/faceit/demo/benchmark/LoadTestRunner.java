@@ -0,0 +1,200 @@
+package com.faceit.demo.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+
+import com.faceit.demo.UserMicroservice;
+import com.faceit.demo.entity.User;
+import com.faceit.demo.repo.UserRepository;
+import com.faceit.demo.util.VirtualThreads;
+
+/**
+ * Closed-loop HTTP load test of the running microservice, comparing request handling on
+ * platform threads with request handling on virtual threads (user.threads.virtual).
+ * Each client thread repeatedly looks up a random user by ID and searches a random
+ * nick name, so that requests block on the JDBC pool; throughput and latency
+ * percentiles are printed per mode. Virtual threads are skipped on JVMs without them.
+ *
+ * Arguments: [concurrency] [duration in seconds] [users], default 1000 30 10000.
+ */
+public class LoadTestRunner {
+
+	private static final String TOPIC = "USER_TOPIC";
+	private static final int SEED_BATCH_SIZE = 1000;
+	private static final int WARMUP_SECONDS = 10;
+
+	public static void main(String[] args) throws Exception {
+		int concurrency = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+		int durationSeconds = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+		int users = args.length > 2 ? Integer.parseInt(args[2]) : 10000;
+		// Keep one connection alive per client thread
+		System.setProperty("http.maxConnections", String.valueOf(concurrency));
+
+		EmbeddedKafkaBroker broker = new EmbeddedKafkaBroker(1, false, 1, TOPIC);
+		broker.afterPropertiesSet();
+		try {
+			System.out.printf("%-9s %12s %10s %10s %10s %10s%n", "threads", "requests/s", "p50 ms", "p99 ms", "max ms", "errors");
+			run("platform", false, broker, concurrency, durationSeconds, users);
+			if (VirtualThreads.isSupported()) {
+				run("virtual", true, broker, concurrency, durationSeconds, users);
+			} else {
+				System.out.println("virtual   skipped, running on Java " + System.getProperty("java.version"));
+			}
+		} finally {
+			broker.destroy();
+		}
+	}
+
+	private static void run(String mode, boolean virtual, EmbeddedKafkaBroker broker,
+			int concurrency, int durationSeconds, int users) throws Exception {
+		ConfigurableApplicationContext context = new SpringApplicationBuilder(UserMicroservice.class)
+				.properties("server.port=0",
+						"user.threads.virtual=" + virtual,
+						"user.async.enabled=false",
+						"kafka.address=" + broker.getBrokersAsString(),
+						"kafka.cache-sync.enabled=false",
+						"spring.datasource.url=jdbc:h2:mem:load-" + mode + ";MODE=PostgreSQL",
+						"logging.level.root=WARN")
+				.run();
+		try {
+			seed(context.getBean(UserRepository.class), users);
+			String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/user";
+
+			measure(baseUrl, concurrency, WARMUP_SECONDS, users);
+			Result result = measure(baseUrl, concurrency, durationSeconds, users);
+			System.out.printf("%-9s %12.0f %10.2f %10.2f %10.2f %10d%n", mode,
+					result.latencies.length / (double) durationSeconds,
+					result.percentile(50), result.percentile(99), result.percentile(100), result.errors);
+		} finally {
+			context.close();
+		}
+	}
+
+	private static void seed(UserRepository userRepo, int users) {
+		// Seed through the repository, so that no event is published for the test data
+		List<User> batch = new ArrayList<>(SEED_BATCH_SIZE);
+		for (int i = 0; i < users; i++) {
+			batch.add(new User("First" + i, "Last" + i, "Nick" + i, "password",
+					"user" + i + "@example.com", "Country" + (i % 50)));
+			if (batch.size() == SEED_BATCH_SIZE || i == users - 1) {
+				userRepo.saveAll(batch);
+				batch.clear();
+			}
+		}
+	}
+
+	private static Result measure(String baseUrl, int concurrency, int durationSeconds, int users) throws Exception {
+		ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(durationSeconds);
+		try {
+			List<Future<Result>> futures = new ArrayList<>(concurrency);
+			for (int i = 0; i < concurrency; i++) {
+				futures.add(clients.submit(() -> client(baseUrl, deadline, users)));
+			}
+			List<Result> results = new ArrayList<>(concurrency);
+			for (Future<Result> future : futures) {
+				results.add(future.get());
+			}
+			return Result.merge(results);
+		} finally {
+			clients.shutdownNow();
+		}
+	}
+
+	private static Result client(String baseUrl, long deadline, int users) {
+		long[] latencies = new long[1024];
+		int count = 0;
+		int errors = 0;
+		boolean search = false;
+		while (System.nanoTime() < deadline) {
+			int i = ThreadLocalRandom.current().nextInt(users);
+			String url = search ? baseUrl + "/search?criteria=nickName:Nick" + i : baseUrl + "/find/id/" + (i + 1);
+			search = !search;
+			long start = System.nanoTime();
+			if (!get(url)) {
+				errors++;
+				continue;
+			}
+			if (count == latencies.length) {
+				latencies = Arrays.copyOf(latencies, count * 2);
+			}
+			latencies[count++] = System.nanoTime() - start;
+		}
+		return new Result(Arrays.copyOf(latencies, count), errors);
+	}
+
+	private static boolean get(String url) {
+		try {
+			HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+			int status = connection.getResponseCode();
+			// Drain the body, so that the connection is kept alive
+			try (InputStream body = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+				if (body != null) {
+					byte[] buffer = new byte[4096];
+					while (body.read(buffer) != -1) {
+						// discard
+					}
+				}
+			}
+			return status == 200;
+		} catch (IOException ex) {
+			return false;
+		}
+	}
+
+	private static class Result {
+
+		private final long[] latencies;
+		private final int errors;
+
+		Result(long[] latencies, int errors) {
+			this.latencies = latencies;
+			this.errors = errors;
+		}
+
+		static Result merge(List<Result> results) {
+			int size = 0;
+			int errors = 0;
+			for (Result result : results) {
+				size += result.latencies.length;
+				errors += result.errors;
+			}
+			long[] latencies = new long[size];
+			int offset = 0;
+			for (Result result : results) {
+				System.arraycopy(result.latencies, 0, latencies, offset, result.latencies.length);
+				offset += result.latencies.length;
+			}
+			Arrays.sort(latencies);
+			return new Result(latencies, errors);
+		}
+
+		/**
+		 * @param percentile 0 to 100, of sorted latencies
+		 * @return latency in milliseconds
+		 */
+		double percentile(double percentile) {
+			if (latencies.length == 0) {
+				return 0;
+			}
+			int index = (int) Math.ceil(percentile / 100 * latencies.length) - 1;
+			return latencies[Math.max(index, 0)] / 1_000_000.0;
+		}
+
+	}
+
+}
@@ -0,0 +1,71 @@
+package com.faceit.demo.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.jpa.domain.Specification;
+
+import com.faceit.demo.cache.SearchPlanCache;
+import com.faceit.demo.entity.User;
+import com.faceit.demo.repo.UserSpecificationsBuilder;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Cost of turning a /user/search criteria string into a {@link Specification}, split
+ * into parsing the string and building the specification from the parsed criteria,
+ * against a lookup of the compiled plan in {@link SearchPlanCache}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+	
+	@Param({"country:England", "country:England,firstName:Joe,lastName!Cole,nickName!JCole"})
+	public String criteria;
+	
+	private UserSpecificationsBuilder parsed;
+	private SearchPlanCache planCache;
+	
+	@Setup(Level.Trial)
+	public void setup() {
+		parsed = UserSpecificationsBuilder.parse(criteria);
+		planCache = new SearchPlanCache(1000, new SimpleMeterRegistry());
+		planCache.get(criteria);
+	}
+	
+	@Benchmark
+	public UserSpecificationsBuilder parseCriteria() {
+		return UserSpecificationsBuilder.parse(criteria);
+	}
+	
+	@Benchmark
+	public Specification<User> buildSpecification() {
+		return parsed.build();
+	}
+	
+	@Benchmark
+	public Specification<User> parseAndBuild() {
+		return UserSpecificationsBuilder.parse(criteria).build();
+	}
+	
+	@Benchmark
+	public Specification<User> cachedPlan() {
+		return planCache.get(criteria);
+	}
+
+}
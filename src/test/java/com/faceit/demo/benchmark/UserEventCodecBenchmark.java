@@ -0,0 +1,80 @@
+package com.faceit.demo.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.faceit.demo.entity.User;
+import com.faceit.demo.event.Events;
+import com.faceit.demo.event.UserEvent;
+import com.faceit.demo.event.UserEventCodec;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Compares the JSON and binary event formats: encode and decode time per event, and
+ * the serialized size of the same event, printed once per trial. Run with the gc
+ * profiler, gc.alloc.rate.norm gives the bytes allocated per event; encodeTree keeps
+ * the tree-based JSON encoding as a baseline for it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserEventCodecBenchmark {
+	
+	@Param({"json", "binary"})
+	public String format;
+	
+	private UserEventCodec codec;
+	private UserEvent event;
+	private byte[] message;
+	private final ObjectMapper mapper = new ObjectMapper();
+	
+	@Setup(Level.Trial)
+	public void setup() {
+		codec = UserEventCodec.forFormat(format);
+		User user = new User(123456l, "Frank", "Lampard", "Super Frank", "password", "f.lampard@cfc.com", "England");
+		event = new UserEvent(Events.USER_UPDATED, user);
+		message = codec.encode(event);
+		System.out.println(String.format("%n%s event message size: %d bytes", format, message.length));
+	}
+	
+	@Benchmark
+	public byte[] encode() {
+		return codec.encode(event);
+	}
+	
+	@Benchmark
+	public UserEvent decode() {
+		return codec.decode(message);
+	}
+	
+	/**
+	 * The encoding EventPublisher used before streaming: User to String, wrapped in an
+	 * ObjectNode, rendered to another String and then to bytes.
+	 */
+	@Benchmark
+	public byte[] encodeTree() throws JsonProcessingException {
+		ObjectNode node = mapper.getNodeFactory().objectNode();
+		node.put("event", event.getEvent().stringVal);
+		node.put("user", mapper.writeValueAsString(event.getUser()));
+		return node.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+}
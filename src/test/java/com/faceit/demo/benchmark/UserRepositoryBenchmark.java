@@ -0,0 +1,138 @@
+package com.faceit.demo.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+
+import com.faceit.demo.UserMicroservice;
+import com.faceit.demo.entity.User;
+import com.faceit.demo.repo.UserRepository;
+import com.faceit.demo.service.UserService;
+
+/**
+ * Repository and service lookups against the in-memory H2 database, with the full
+ * persistence configuration of the microservice. The query plans of the searches are
+ * logged at setup, to show which index serves each of them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class UserRepositoryBenchmark {
+	private static final Logger LOG = LoggerFactory.getLogger(UserRepositoryBenchmark.class);
+	
+	private static final String TOPIC = "USER_TOPIC";
+	private static final int SEED_BATCH_SIZE = 1000;
+	private static final int COUNTRIES = 50;
+	private static final int PAGE_SIZE = 50;
+	
+	@Param({"10000", "1000000"})
+	public int users;
+	
+	private EmbeddedKafkaBroker broker;
+	private ConfigurableApplicationContext context;
+	private UserRepository userRepo;
+	private UserService userService;
+	private long maxId;
+	
+	@Setup(Level.Trial)
+	public void setup() {
+		broker = new EmbeddedKafkaBroker(1, false, 1, TOPIC);
+		broker.afterPropertiesSet();
+		context = new SpringApplicationBuilder(UserMicroservice.class)
+				.web(WebApplicationType.NONE)
+				.properties("kafka.address=" + broker.getBrokersAsString(),
+						"kafka.cache-sync.enabled=false",
+						"spring.datasource.url=jdbc:h2:mem:benchmark;MODE=PostgreSQL",
+						"logging.level.root=WARN",
+						"logging.level.com.faceit.demo.benchmark=INFO")
+				.run();
+		userRepo = context.getBean(UserRepository.class);
+		userService = context.getBean(UserService.class);
+		
+		// Seed through the repository, so that no event is published for the test data
+		List<User> batch = new ArrayList<>(SEED_BATCH_SIZE);
+		for (int i = 0; i < users; i++) {
+			batch.add(new User("First" + i, "Last" + i, "Nick" + i, "password",
+					"user" + i + "@example.com", "Country" + (i % COUNTRIES)));
+			if (batch.size() == SEED_BATCH_SIZE || i == users - 1) {
+				for (User user : userRepo.saveAll(batch)) {
+					maxId = Math.max(maxId, user.getId());
+				}
+				batch.clear();
+			}
+		}
+		
+		JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+		for (String condition : new String[] {"country = 'Country7'", "nick_name = 'Nick7'", "email = 'user7@example.com'"}) {
+			LOG.info("Plan of {}: {}", condition,
+					jdbcTemplate.queryForObject("EXPLAIN SELECT * FROM users WHERE " + condition, String.class));
+		}
+	}
+	
+	@TearDown(Level.Trial)
+	public void teardown() {
+		context.close();
+		broker.destroy();
+	}
+	
+	private long randomId() {
+		return ThreadLocalRandom.current().nextLong(1, maxId + 1);
+	}
+	
+	@Benchmark
+	public Object repositoryFindById() {
+		return userRepo.findById(randomId());
+	}
+	
+	@Benchmark
+	public User serviceFindById() {
+		return userService.findById(randomId());
+	}
+	
+	@Benchmark
+	public Iterable<User> searchByCountry() {
+		return userService.search("country:Country" + ThreadLocalRandom.current().nextInt(COUNTRIES));
+	}
+	
+	@Benchmark
+	public Iterable<User> searchByNickName() {
+		return userService.search("nickName:Nick" + ThreadLocalRandom.current().nextInt(users));
+	}
+	
+	@Benchmark
+	public Iterable<User> searchByEmail() {
+		return userService.search("email:user" + ThreadLocalRandom.current().nextInt(users) + "@example.com");
+	}
+	
+	@Benchmark
+	public List<User> keysetPage() {
+		return userRepo.findByIdGreaterThanOrderByIdAsc(randomId(), PageRequest.of(0, PAGE_SIZE));
+	}
+
+}
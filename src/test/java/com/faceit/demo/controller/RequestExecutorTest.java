@@ -0,0 +1,86 @@
+package com.faceit.demo.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.faceit.demo.exception.ServiceUnavailableException;
+import com.faceit.demo.util.VirtualThreads;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class RequestExecutorTest {
+
+	@Test
+	void disabledExecutorShouldRunTaskOnCallingThread() throws Exception {
+		RequestExecutor requestExecutor = new RequestExecutor(false, false, 1, 0, new SimpleMeterRegistry());
+		String caller = Thread.currentThread().getName();
+
+		assertEquals(caller, requestExecutor.submit(() -> Thread.currentThread().getName()).get());
+	}
+
+	@Test
+	void saturatedExecutorShouldRejectWithServiceUnavailable() throws Exception {
+		SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		RequestExecutor requestExecutor = new RequestExecutor(true, false, 1, 0, meterRegistry);
+		CountDownLatch release = new CountDownLatch(1);
+		try {
+			CompletableFuture<Boolean> blocked = requestExecutor.submit(() -> {
+				try {
+					return release.await(10, TimeUnit.SECONDS);
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+					return false;
+				}
+			});
+
+			assertThrows(ServiceUnavailableException.class, () -> requestExecutor.submit(() -> true));
+			assertEquals(1.0, meterRegistry.get("executor.rejected").counter().count());
+
+			release.countDown();
+			assertEquals(true, blocked.get(10, TimeUnit.SECONDS));
+		} finally {
+			release.countDown();
+			requestExecutor.destroy();
+		}
+	}
+
+	@Test
+	void virtualThreadExecutorShouldBoundRequestsInFlight() throws Exception {
+		assumeTrue(VirtualThreads.isSupported());
+		SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		RequestExecutor requestExecutor = new RequestExecutor(true, true, 1, 1, meterRegistry);
+		CountDownLatch release = new CountDownLatch(1);
+		try {
+			CompletableFuture<Boolean> first = requestExecutor.submit(() -> awaitQuietly(release));
+			CompletableFuture<Boolean> second = requestExecutor.submit(() -> awaitQuietly(release));
+
+			assertThrows(ServiceUnavailableException.class, () -> requestExecutor.submit(() -> true));
+			assertEquals(2.0, meterRegistry.get("executor.active").gauge().value());
+
+			release.countDown();
+			assertEquals(true, first.get(10, TimeUnit.SECONDS));
+			assertEquals(true, second.get(10, TimeUnit.SECONDS));
+			assertEquals(true, requestExecutor.submit(() -> true).get(10, TimeUnit.SECONDS));
+		} finally {
+			release.countDown();
+			requestExecutor.destroy();
+		}
+	}
+
+	private static boolean awaitQuietly(CountDownLatch latch) {
+		try {
+			return latch.await(10, TimeUnit.SECONDS);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+}
@@ -1,11 +1,20 @@
 package com.faceit.demo.controller;
 
 import static org.hamcrest.Matchers.hasSize;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -13,25 +22,41 @@ import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
 import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
 import com.faceit.demo.entity.User;
 import com.faceit.demo.service.UserService;
+import com.faceit.demo.util.BulkItemResult;
+import com.faceit.demo.util.BulkItemResult.Status;
+import com.faceit.demo.util.CursorPage;
+import com.faceit.demo.util.UserBatch;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
 @ExtendWith(SpringExtension.class)
 @WebMvcTest(UserController.class)
+@Import({RequestExecutor.class, SimpleMeterRegistry.class})
 public class UserControllerTests {
 	
 	private static final String BASE_USER_ROUTE = "/user";
 	
 	private static final String LIST_USERS_ENDPOINT = "/listAll";
+	private static final String PAGE_USERS_ENDPOINT = "/list";
+	private static final String EXPORT_USERS_ENDPOINT = "/export";
+	private static final String BULK_CREATE_USERS_ENDPOINT = "/bulk/create";
 	private static final String CREATE_USER_ENDPOINT = "/create";
 	private static final String READ_USER_ENDPOINT = "/find/id/";
+	private static final String READ_USERS_ENDPOINT = "/find/ids";
+	private static final String UPDATE_USER_ENDPOINT = "/update";
 	
 	@Autowired
     private MockMvc mockMvc;
@@ -41,6 +66,19 @@ public class UserControllerTests {
 	
 	private ObjectMapper objectMapper = new ObjectMapper();
 	
+	/*
+	 * Performs the request and, if the controller handed it off to the RequestExecutor,
+	 * the async dispatch that writes the response.
+	 */
+	private ResultActions perform(RequestBuilder request) throws Exception {
+		ResultActions actions = mockMvc.perform(request);
+		MvcResult result = actions.andReturn();
+		if (result.getRequest().isAsyncStarted()) {
+			return mockMvc.perform(asyncDispatch(result));
+		}
+		return actions;
+	}
+	
 	@Test
     void getAllUserShouldReturnListOfUser() throws Exception {
         List<User> userList = new ArrayList<User>();
@@ -48,11 +86,63 @@ public class UserControllerTests {
         userList.add(new User(2L,"Cesar", "Azpilicueta", "Dave", "password", "c.azpi@cfc.com", "Spain"));
         when(mockedUserService.findAll()).thenReturn(userList);
 
-        mockMvc.perform(MockMvcRequestBuilders.get(BASE_USER_ROUTE + LIST_USERS_ENDPOINT)
+        perform(MockMvcRequestBuilders.get(BASE_USER_ROUTE + LIST_USERS_ENDPOINT)
         		.contentType(MediaType.APPLICATION_JSON)
         	).andExpect(jsonPath("$", hasSize(2)));
     }
 	
+	@Test
+    void getAllUsersWithFieldsShouldReturnOnlyThoseFields() throws Exception {
+        Map<String, Object> userFrank = new LinkedHashMap<String, Object>();
+        userFrank.put("id", 1L);
+        userFrank.put("nickName", "Super Frank");
+        userFrank.put("country", "England");
+        List<Map<String, Object>> userList = new ArrayList<Map<String, Object>>();
+        userList.add(userFrank);
+        when(mockedUserService.findAll("id,nickName,country")).thenReturn(userList);
+
+        perform(MockMvcRequestBuilders.get(BASE_USER_ROUTE + LIST_USERS_ENDPOINT)
+        		.param("fields", "id,nickName,country")
+        		.contentType(MediaType.APPLICATION_JSON)
+        	).andExpect(status().isOk())
+        	.andExpect(jsonPath("$", hasSize(1)))
+        	.andExpect(jsonPath("[0].nickName").value("Super Frank"))
+        	.andExpect(jsonPath("[0].password").doesNotExist());
+    }
+	
+	@Test
+    void getPageOfUsersShouldReturnUsersAndNextCursor() throws Exception {
+        List<User> userList = new ArrayList<User>();
+        userList.add(new User(1L,"Frank", "Lampard", "Super Frank", "password", "f.lampard@cfc.com", "England"));
+        userList.add(new User(2L,"Cesar", "Azpilicueta", "Dave", "password", "c.azpi@cfc.com", "Spain"));
+        when(mockedUserService.findPage(null, 2)).thenReturn(new CursorPage<User>(userList, "aWQ6Mg"));
+
+        perform(MockMvcRequestBuilders.get(BASE_USER_ROUTE + PAGE_USERS_ENDPOINT)
+        		.param("limit", "2")
+        		.contentType(MediaType.APPLICATION_JSON)
+        	).andExpect(jsonPath("content", hasSize(2)))
+        	.andExpect(jsonPath("nextCursor").value("aWQ6Mg"));
+    }
+	
+	@Test
+	@SuppressWarnings("unchecked")
+    void exportUsersShouldWriteOneJsonLinePerUser() throws Exception {
+        User userFrank = new User(1L,"Frank", "Lampard", "Super Frank", "password", "f.lampard@cfc.com", "England");
+        User userCesar = new User(2L,"Cesar", "Azpilicueta", "Dave", "password", "c.azpi@cfc.com", "Spain");
+        doAnswer(invocation -> {
+        	Consumer<User> consumer = invocation.getArgument(0);
+        	consumer.accept(userFrank);
+        	consumer.accept(userCesar);
+        	return null;
+        }).when(mockedUserService).exportAll(Mockito.any(Consumer.class));
+
+        String expected = objectMapper.writeValueAsString(userFrank) + "\n"
+        		+ objectMapper.writeValueAsString(userCesar) + "\n";
+        mockMvc.perform(MockMvcRequestBuilders.get(BASE_USER_ROUTE + EXPORT_USERS_ENDPOINT))
+        	.andExpect(content().contentTypeCompatibleWith("application/x-ndjson"))
+        	.andExpect(content().string(expected));
+    }
+	
 	@Test
     void postValidUserObjShouldReturnNewUserWithId() throws Exception {
         User userFrank = new User("Frank", "Lampard", "Super Frank", "password", "f.lampard@cfc.com", "England");
@@ -60,7 +150,7 @@ public class UserControllerTests {
         String userFrankJSON = objectMapper.writeValueAsString(userFrank);
         when(mockedUserService.create(Mockito.any(User.class))).thenReturn(createdUserFrank);
         
-        ResultActions result = mockMvc.perform(MockMvcRequestBuilders.post(BASE_USER_ROUTE + CREATE_USER_ENDPOINT)
+        ResultActions result = perform(MockMvcRequestBuilders.post(BASE_USER_ROUTE + CREATE_USER_ENDPOINT)
         		.contentType(MediaType.APPLICATION_JSON)
         		.content(userFrankJSON));
         		
@@ -73,13 +163,34 @@ public class UserControllerTests {
         	.andExpect(jsonPath("country").value("England"));
     }
 	
+	@Test
+	@SuppressWarnings("unchecked")
+    void postUserListShouldReturnResultOfEachUser() throws Exception {
+        List<User> userList = new ArrayList<User>();
+        userList.add(new User("Frank", "Lampard", "Super Frank", "password", "f.lampard@cfc.com", "England"));
+        userList.add(new User(3l, "Juan", "Mata", "JM", "password", "j.mata@cfc.com", "Spain"));
+        List<BulkItemResult> results = new ArrayList<BulkItemResult>();
+        results.add(new BulkItemResult(0, 1l, Status.CREATED));
+        results.add(new BulkItemResult(1, 3l, Status.REJECTED, "User must not be supplied with ID"));
+        when(mockedUserService.createAll(Mockito.any(List.class))).thenReturn(results);
+        
+        perform(MockMvcRequestBuilders.post(BASE_USER_ROUTE + BULK_CREATE_USERS_ENDPOINT)
+        		.contentType(MediaType.APPLICATION_JSON)
+        		.content(objectMapper.writeValueAsString(userList)))
+        	.andExpect(jsonPath("$", hasSize(2)))
+        	.andExpect(jsonPath("[0].status").value("CREATED"))
+        	.andExpect(jsonPath("[0].id").value(1))
+        	.andExpect(jsonPath("[1].status").value("REJECTED"))
+        	.andExpect(jsonPath("[1].index").value(1));
+    }
+	
 	@Test
 	void getValidUserObjByIdShouldReturUserWithId() throws Exception {
 		User userFrank = new User(1l, "Frank", "Lampard", "Super Frank", "password", "f.lampard@cfc.com", "England");
 		String userFrankJSON = objectMapper.writeValueAsString(userFrank);
 		when(mockedUserService.findById(Mockito.anyLong())).thenReturn(userFrank);
 		
-		ResultActions result = mockMvc.perform(MockMvcRequestBuilders.get(BASE_USER_ROUTE + READ_USER_ENDPOINT + 1)
+		ResultActions result = perform(MockMvcRequestBuilders.get(BASE_USER_ROUTE + READ_USER_ENDPOINT + 1)
 				.contentType(MediaType.APPLICATION_JSON)
 				.content(userFrankJSON));
 		
@@ -92,6 +203,52 @@ public class UserControllerTests {
 		.andExpect(jsonPath("country").value("England"));
 	}
 	
+	@Test
+	void getUserWithCurrentETagShouldReturnNotModified() throws Exception {
+		User userFrank = new User(1l, "Frank", "Lampard", "Super Frank", "password", "f.lampard@cfc.com", "England");
+		userFrank.setVersion(3l);
+		when(mockedUserService.findById(1l)).thenReturn(userFrank);
+		
+		perform(MockMvcRequestBuilders.get(BASE_USER_ROUTE + READ_USER_ENDPOINT + 1))
+			.andExpect(status().isOk())
+			.andExpect(header().string(HttpHeaders.ETAG, "\"3\""));
+		perform(MockMvcRequestBuilders.get(BASE_USER_ROUTE + READ_USER_ENDPOINT + 1)
+				.header(HttpHeaders.IF_NONE_MATCH, "\"3\""))
+			.andExpect(status().isNotModified())
+			.andExpect(content().string(""));
+	}
+	
+	@Test
+	void putUserWithoutIfMatchShouldReturnNewVersionAsETag() throws Exception {
+		User userFrank = new User(1l, "Frank", "Lampard", "Super Frank", "password", "f.lampard@cfc.com", "England");
+		User updatedFrank = new User(1l, "Frank", "Lampard", "Super Frank", "password", "f.lampard@cfc.com", "England");
+		updatedFrank.setVersion(4l);
+		when(mockedUserService.update(Mockito.any(User.class), Mockito.isNull())).thenReturn(updatedFrank);
+		
+		perform(MockMvcRequestBuilders.put(BASE_USER_ROUTE + UPDATE_USER_ENDPOINT)
+				.contentType(MediaType.APPLICATION_JSON)
+				.content(objectMapper.writeValueAsString(userFrank)))
+			.andExpect(status().isOk())
+			.andExpect(header().string(HttpHeaders.ETAG, "\"4\""))
+			.andExpect(jsonPath("version").value(4));
+	}
+	
+	@Test
+	void getUsersByIdsShouldReturnUsersAndMissingIds() throws Exception {
+		List<User> userList = new ArrayList<User>();
+		userList.add(new User(3l, "John", "Terry", "JT", "password", "j.terry@cfc.com", "England"));
+		userList.add(new User(1l, "Frank", "Lampard", "Super Frank", "password", "f.lampard@cfc.com", "England"));
+		when(mockedUserService.findAllById(Arrays.asList(3l, 9l, 1l)))
+			.thenReturn(new UserBatch(userList, Arrays.asList(9l)));
+		
+		perform(MockMvcRequestBuilders.get(BASE_USER_ROUTE + READ_USERS_ENDPOINT).param("ids", "3,9,1"))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("users", hasSize(2)))
+			.andExpect(jsonPath("users[0].id").value(3))
+			.andExpect(jsonPath("users[1].id").value(1))
+			.andExpect(jsonPath("missingIds[0]").value(9));
+	}
+	
 	/*
 	 * TODO: More unit tests to follow.
 	 * 
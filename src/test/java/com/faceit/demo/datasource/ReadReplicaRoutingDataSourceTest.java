@@ -0,0 +1,79 @@
+package com.faceit.demo.datasource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Two H2 instances stand in for the primary and a read replica; each holds a single
+ * row naming itself, so every query reveals which instance served it.
+ */
+public class ReadReplicaRoutingDataSourceTest {
+	
+	private static final String NODE_QUERY = "SELECT name FROM node";
+	
+	private DataSource primary;
+	private DataSource replicaA;
+	private DataSource replicaB;
+	
+	@BeforeEach
+	public void setup() {
+		primary = node("primary");
+		replicaA = node("replicaA");
+		replicaB = node("replicaB");
+	}
+	
+	@Test
+	public void givenReadOnlyTransactions_whenQuerying_thenReplicasServeThemInTurn() {
+		DataSource dataSource = routing(Arrays.asList(replicaA, replicaB));
+		TransactionTemplate readOnly = transactionTemplate(dataSource, true);
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+		
+		assertEquals("replicaA", readOnly.execute(status -> jdbcTemplate.queryForObject(NODE_QUERY, String.class)));
+		assertEquals("replicaB", readOnly.execute(status -> jdbcTemplate.queryForObject(NODE_QUERY, String.class)));
+		assertEquals("replicaA", readOnly.execute(status -> jdbcTemplate.queryForObject(NODE_QUERY, String.class)));
+	}
+	
+	@Test
+	public void givenReadWriteTransactionOrNoTransaction_whenQuerying_thenPrimaryServesIt() {
+		DataSource dataSource = routing(Collections.singletonList(replicaA));
+		TransactionTemplate readWrite = transactionTemplate(dataSource, false);
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+		
+		assertEquals("primary", readWrite.execute(status -> jdbcTemplate.queryForObject(NODE_QUERY, String.class)));
+		assertEquals("primary", jdbcTemplate.queryForObject(NODE_QUERY, String.class));
+	}
+	
+	private DataSource routing(List<DataSource> replicas) {
+		return new LazyConnectionDataSourceProxy(new ReadReplicaRoutingDataSource(primary, replicas));
+	}
+	
+	private static TransactionTemplate transactionTemplate(DataSource dataSource, boolean readOnly) {
+		TransactionTemplate template = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+		template.setReadOnly(readOnly);
+		return template;
+	}
+	
+	private static DataSource node(String name) {
+		DataSource dataSource = new DriverManagerDataSource(
+				"jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1;MODE=PostgreSQL", "sa", "");
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+		jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS node (name VARCHAR(32))");
+		jdbcTemplate.execute("DELETE FROM node");
+		jdbcTemplate.update("INSERT INTO node (name) VALUES (?)", name);
+		return dataSource;
+	}
+
+}
@@ -0,0 +1,93 @@
+package com.faceit.demo.datasource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import javax.sql.DataSource;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.faceit.demo.cache.UserCache;
+import com.faceit.demo.entity.User;
+import com.faceit.demo.repo.UserRepository;
+import com.faceit.demo.service.UserService;
+
+/**
+ * Routing of JPA transactions with a read replica configured. The replica is a second
+ * H2 instance holding a stale copy of the user, so every read reveals which instance
+ * served it.
+ */
+@SpringBootTest(properties = {
+		"user.datasource.replica-urls=" + ReadReplicaRoutingJpaTest.REPLICA_URL,
+		"kafka.cache-sync.enabled=false" })
+public class ReadReplicaRoutingJpaTest {
+
+	static final String REPLICA_URL = "jdbc:h2:mem:replica_jpa;DB_CLOSE_DELAY=-1;MODE=PostgreSQL";
+
+	private static final String CURRENT_NAME = "Thiago";
+	private static final String STALE_NAME = "Stale";
+
+	private static DataSource replica;
+
+	@Autowired
+	private UserService userService;
+
+	@Autowired
+	private UserRepository userRepo;
+
+	@Autowired
+	private UserCache userCache;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@BeforeAll
+	public static void migrateReplica() {
+		replica = new DriverManagerDataSource(REPLICA_URL, "sa", "");
+		Flyway.configure().dataSource(replica).locations("classpath:db/migration/common").load().migrate();
+	}
+
+	@Test
+	public void givenReadOnlyTransaction_whenJpaQuery_thenReplicaServesIt() {
+		long id = createWithStaleReplicaCopy("t.silva@cfc.com", "TS");
+
+		assertEquals(STALE_NAME, transactionTemplate(true).execute(status -> firstName(id)));
+		assertEquals(CURRENT_NAME, transactionTemplate(false).execute(status -> firstName(id)));
+	}
+
+	@Test
+	public void givenStaleReplica_whenFindByIdMissesCache_thenUserIsLoadedFromPrimary() {
+		long id = createWithStaleReplicaCopy("t.alcantara@cfc.com", "TA");
+		userCache.evict(id);
+
+		assertEquals(CURRENT_NAME, userService.findById(id).getFirstName());
+		assertEquals(CURRENT_NAME, userCache.getIfPresent(id).getFirstName());
+	}
+
+	private long createWithStaleReplicaCopy(String email, String nickName) {
+		User user = userService.create(new User(CURRENT_NAME, "Silva", nickName, "password", email, "Brazil"));
+		new JdbcTemplate(replica).update(
+				"INSERT INTO users (id, first_name, last_name, nick_name, password, email, country, version) "
+						+ "VALUES (?, ?, 'Silva', ?, 'password', ?, 'Brazil', 0)",
+				user.getId(), STALE_NAME, nickName, email);
+		return user.getId();
+	}
+
+	private String firstName(long id) {
+		return userRepo.findById(id).get().getFirstName();
+	}
+
+	private TransactionTemplate transactionTemplate(boolean readOnly) {
+		TransactionTemplate template = new TransactionTemplate(transactionManager);
+		template.setReadOnly(readOnly);
+		return template;
+	}
+
+}
@@ -5,8 +5,11 @@ import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
@@ -28,6 +31,7 @@ import org.junit.jupiter.api.TestMethodOrder;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.web.server.LocalServerPort;
@@ -43,10 +47,12 @@ import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.faceit.demo.cache.UserCache;
 import com.faceit.demo.entity.User;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.jayway.restassured.RestAssured;
 import com.jayway.restassured.http.ContentType;
 import com.jayway.restassured.parsing.Parser;
@@ -72,6 +78,12 @@ public class EventPublisherIT {
 	@LocalServerPort
 	private int port;
 	
+	@Autowired
+	private UserCache userCache;
+	
+	@Autowired
+	private MessageProducer messageProducer;
+	
 	private static final String BASE_USER_ROUTE = "/user";
 	
 	private static final String CREATE_USER_ENDPOINT = "/create";
@@ -280,5 +292,29 @@ public class EventPublisherIT {
 				.assertThat().statusCode(equalTo(HttpStatus.NOT_FOUND.value()));
 		assertThat(consumerRecords.size(), is(0));
 	}
+	
+	@Test
+	@Order(7)
+	public void givenUserCachedLocally_whenAnotherNodePublishesUpdate_thenUserIsEvictedFromCache() {
+		final long USER_ID = 42l;
+		userCache.get(USER_ID, id -> new User(id, "Eden", "Hazard", "EH", "password", "e.hazard@cfc.com", "Belgium"));
+		assertNotNull(userCache.getIfPresent(USER_ID));
+		
+		// Message as published by the EventPublisher of another instance
+		ObjectNode node = new ObjectMapper().createObjectNode();
+		node.put("event", Events.USER_UPDATED.stringVal);
+		node.put("user", "{\"id\":" + USER_ID + ",\"firstName\":\"Eden\"}");
+		messageProducer.sendMessage(String.valueOf(USER_ID), node.toString().getBytes(StandardCharsets.UTF_8));
+		
+		try {
+			long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+			while (userCache.getIfPresent(USER_ID) != null && System.currentTimeMillis() < deadline) {
+				Thread.sleep(100);
+			}
+		} catch (InterruptedException e) {
+			assertFalse(true);
+		}
+		assertNull(userCache.getIfPresent(USER_ID));
+	}
 
 }
@@ -0,0 +1,177 @@
+package com.faceit.demo.event;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.apache.kafka.common.KafkaException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+import com.faceit.demo.entity.OutboxEvent;
+import com.faceit.demo.entity.User;
+import com.faceit.demo.repo.OutboxEventRepository;
+import com.faceit.demo.repo.UserRepository;
+import com.faceit.demo.service.UserService;
+
+/**
+ * Integration Test of the transactional outbox against the database, with the Kafka
+ * producer mocked so that sends can be acknowledged or failed. The scheduled relay
+ * only runs at startup; the tests run it themselves.
+ */
+@SpringBootTest(properties = {
+		"outbox.relay.interval-ms=3600000",
+		"kafka.cache-sync.enabled=false" })
+public class OutboxRelayIT {
+
+	@Autowired
+	private UserService userService;
+
+	@Autowired
+	private UserRepository userRepo;
+
+	@Autowired
+	private OutboxEventRepository outboxRepo;
+
+	@Autowired
+	private OutboxRelay outboxRelay;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+	
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@MockBean
+	private MessageProducer messageProducer;
+
+	@BeforeEach
+	public void init() {
+		outboxRepo.deleteAll();
+		reset(messageProducer);
+	}
+
+	@Test
+	public void givenUserCreated_whenTransactionRollsBack_thenNoEventIsWritten() {
+		long users = userRepo.count();
+		transactionTemplate.execute(status -> {
+			User user = userService.create(new User("Mason", "Mount", "MM", "password", "m.mount@cfc.com", "England"));
+			assertEquals(Collections.singletonList(user.getId()), aggregateIds());
+			status.setRollbackOnly();
+			return null;
+		});
+
+		assertEquals(0, outboxRepo.count());
+		assertEquals(users, userRepo.count());
+	}
+
+	@Test
+	public void givenUserCreated_whenSendAcknowledged_thenEventIsDeleted() throws Exception {
+		User user = userService.create(new User("Reece", "James", "RJ", "password", "r.james@cfc.com", "England"));
+		assertEquals(Collections.singletonList(user.getId()), aggregateIds());
+		when(messageProducer.sendMessage(any(), any())).thenReturn(acknowledged());
+
+		outboxRelay.relay();
+
+		verify(messageProducer).sendMessage(eq(String.valueOf(user.getId())), any());
+		assertEquals(0, outboxRepo.count());
+	}
+
+	@Test
+	public void givenUserCreatedAndPatched_whenFirstSendFails_thenBothEventsAreKeptAndRetriedInOrder() throws Exception {
+		User user = userService.create(new User("Kai", "Havertz", "KH", "password", "k.havertz@cfc.com", "Germany"));
+		userService.patch(user.getId(), Collections.singletonMap("country", "England"));
+		String key = String.valueOf(user.getId());
+		when(messageProducer.sendMessage(any(), any())).thenReturn(failed());
+
+		outboxRelay.relay();
+
+		// The update is not sent ahead of the failed creation
+		verify(messageProducer, times(1)).sendMessage(eq(key), any());
+		List<OutboxEvent> kept = outboxRepo.findAll();
+		assertEquals(2, kept.size());
+		kept.forEach(event -> assertNull(event.getClaimedUntil()));
+
+		reset(messageProducer);
+		when(messageProducer.sendMessage(any(), any())).thenReturn(acknowledged());
+
+		outboxRelay.relay();
+
+		verify(messageProducer, times(2)).sendMessage(eq(key), any());
+		assertEquals(0, outboxRepo.count());
+	}
+
+	@Test
+	public void givenEventsWrittenFromTwoIdBlocks_whenRelayRuns_thenTheyAreSentInWriteOrder() throws Exception {
+		// Two instances hold the ID blocks 10001-10050 and 10051-10100: the one with the
+		// higher block writes first
+		insertEvent(10051, 42, "created");
+		insertEvent(10001, 42, "updated");
+		when(messageProducer.sendMessage(any(), any())).thenReturn(acknowledged());
+
+		outboxRelay.relay();
+
+		InOrder order = inOrder(messageProducer);
+		order.verify(messageProducer).sendMessage("42", "created".getBytes());
+		order.verify(messageProducer).sendMessage("42", "updated".getBytes());
+		assertEquals(0, outboxRepo.count());
+	}
+
+	@Test
+	public void givenOutboxClaimedByAnotherRelay_whenRelayRuns_thenNothingIsSent() throws Exception {
+		userService.create(new User("Ben", "Chilwell", "BC", "password", "b.chilwell@cfc.com", "England"));
+		transactionTemplate.execute(status -> outboxRepo.updateClaimedUntil(
+				Collections.singletonList(outboxRepo.findAll().get(0).getId()),
+				Instant.now().plusSeconds(60)));
+
+		outboxRelay.relay();
+
+		verify(messageProducer, never()).sendMessage(any(), any());
+		assertEquals(1, outboxRepo.count());
+	}
+
+	private void insertEvent(long id, long aggregateId, String payload) {
+		jdbcTemplate.update("insert into outbox_event (id, aggregate_id, payload) values (?, ?, ?)",
+				id, aggregateId, payload.getBytes());
+	}
+
+	private List<Long> aggregateIds() {
+		return outboxRepo.findAll().stream()
+				.map(OutboxEvent::getAggregateId)
+				.collect(Collectors.toList());
+	}
+
+	private static ListenableFuture<SendResult<String, byte[]>> acknowledged() {
+		SettableListenableFuture<SendResult<String, byte[]>> future = new SettableListenableFuture<>();
+		future.set(null);
+		return future;
+	}
+
+	private static ListenableFuture<SendResult<String, byte[]>> failed() {
+		SettableListenableFuture<SendResult<String, byte[]>> future = new SettableListenableFuture<>();
+		future.setException(new KafkaException("Broker not available"));
+		return future;
+	}
+
+}
@@ -0,0 +1,82 @@
+package com.faceit.demo.event;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.junit.jupiter.api.Test;
+
+import com.faceit.demo.entity.User;
+
+public class UserEventCodecTest {
+	
+	private final User userFrank = new User(1234l, "Frank", "Lampard", "Super Frank", "password", null, "England");
+	
+	@Test
+	public void givenUserEvent_whenEncodedAsBinary_thenDecodedEventIsEqual() {
+		UserEventCodec codec = UserEventCodec.forFormat("binary");
+		
+		UserEvent decoded = codec.decode(codec.encode(new UserEvent(Events.USER_UPDATED, userFrank)));
+		
+		assertEquals(Events.USER_UPDATED, decoded.getEvent());
+		assertEquals(userFrank.getId(), decoded.getUserId());
+		assertUserEquals(userFrank, decoded.getUser());
+	}
+	
+	@Test
+	public void givenNonAsciiUserFields_whenEncodedInEitherFormat_thenDecodedFieldsAreEqual() {
+		User userZoe = new User(77l, "Zo\u00eb", "\u0141ukasz", "\u5c0f\u9f99 \ud83d\ude00", "p\u00e4ssw\u00f6rd", "zoe@example.com", "Espa\u00f1a");
+		
+		for (String format : new String[] {"json", "binary"}) {
+			UserEventCodec codec = UserEventCodec.forFormat(format);
+			assertUserEquals(userZoe, codec.decode(codec.encode(new UserEvent(Events.USER_CREATED, userZoe))).getUser());
+		}
+	}
+	
+	@Test
+	public void givenDeletedEvent_whenEncodedAsBinary_thenDecodedEventHasIdOnly() {
+		UserEventCodec codec = UserEventCodec.forFormat("binary");
+		
+		UserEvent decoded = codec.decode(codec.encode(new UserEvent(Events.USER_DELETED, 300l, null)));
+		
+		assertEquals(Events.USER_DELETED, decoded.getEvent());
+		assertEquals(300l, decoded.getUserId());
+		assertNull(decoded.getUser());
+	}
+	
+	@Test
+	public void givenUserEvent_whenEncodedAsBinary_thenMessageIsSmallerThanJson() {
+		UserEvent event = new UserEvent(Events.USER_CREATED, userFrank);
+		
+		int binarySize = UserEventCodec.forFormat("binary").encode(event).length;
+		int jsonSize = UserEventCodec.forFormat("json").encode(event).length;
+		
+		assertTrue(binarySize < jsonSize / 2);
+	}
+	
+	@Test
+	public void givenMessagesInEitherFormat_whenDeserialized_thenFormatIsDetected() {
+		UserEventDeserializer deserializer = new UserEventDeserializer();
+		UserEvent event = new UserEvent(Events.USER_CREATED, userFrank);
+		
+		for (String format : new String[] {"json", "binary"}) {
+			UserEvent decoded = deserializer.deserialize("USER_TOPIC", UserEventCodec.forFormat(format).encode(event));
+			assertEquals(Events.USER_CREATED, decoded.getEvent());
+			assertUserEquals(userFrank, decoded.getUser());
+		}
+		assertThrows(SerializationException.class, () -> deserializer.deserialize("USER_TOPIC", new byte[] {'{'}));
+	}
+	
+	private static void assertUserEquals(User expected, User actual) {
+		assertEquals(expected.getId(), actual.getId());
+		assertEquals(expected.getFirstName(), actual.getFirstName());
+		assertEquals(expected.getLastName(), actual.getLastName());
+		assertEquals(expected.getNickName(), actual.getNickName());
+		assertEquals(expected.getPassword(), actual.getPassword());
+		assertEquals(expected.getEmail(), actual.getEmail());
+		assertEquals(expected.getCountry(), actual.getCountry());
+	}
+
+}
@@ -0,0 +1,37 @@
+package com.faceit.demo.exception;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.sql.SQLException;
+
+import org.hibernate.exception.ConstraintViolationException;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+
+public class UserControllerAdvisorTest {
+
+	private final UserControllerAdvisor advisor = new UserControllerAdvisor();
+
+	@Test
+	public void givenUniqueKeyViolationOfEmailOrNickName_whenHandled_thenConflict() {
+		assertEquals(HttpStatus.CONFLICT, status("uk_user_email"));
+		assertEquals(HttpStatus.CONFLICT, status("\"PUBLIC.UK_USER_NICK_NAME_INDEX_4"));
+	}
+
+	@Test
+	public void givenOtherViolation_whenHandled_thenBadRequest() {
+		assertEquals(HttpStatus.BAD_REQUEST, status("pk_users"));
+		assertEquals(HttpStatus.BAD_REQUEST, status(null));
+		assertEquals(HttpStatus.BAD_REQUEST, advisor.handle(new DataIntegrityViolationException("value too long"))
+				.getStatusCode());
+	}
+
+	private HttpStatus status(String constraintName) {
+		ConstraintViolationException cause = new ConstraintViolationException(
+				"could not execute statement", new SQLException("violation"), constraintName);
+		return advisor.handle(new DataIntegrityViolationException("could not execute statement", cause))
+				.getStatusCode();
+	}
+
+}
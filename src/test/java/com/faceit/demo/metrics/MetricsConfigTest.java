@@ -0,0 +1,62 @@
+package com.faceit.demo.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+
+import com.faceit.demo.entity.User;
+import com.faceit.demo.exception.UserNotFoundException;
+import com.faceit.demo.service.UserService;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class MetricsConfigTest {
+
+	private SimpleMeterRegistry meterRegistry;
+	private BeanPostProcessor timingBeanPostProcessor;
+
+	@BeforeEach
+	void init() {
+		meterRegistry = new SimpleMeterRegistry();
+		DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+		beanFactory.registerSingleton("meterRegistry", meterRegistry);
+		timingBeanPostProcessor = MetricsConfig.timingBeanPostProcessor(
+				beanFactory.getBeanProvider(MeterRegistry.class));
+	}
+
+	@Test
+	void userServiceCallsShouldBeTimedPerMethodAndOutcome() {
+		User userFrank = new User(1l, "Frank", "Lampard", "Super Frank", "password", "f.lampard@cfc.com", "England");
+		UserService userService = mock(UserService.class);
+		when(userService.findById(1l)).thenReturn(userFrank);
+		when(userService.findById(9l)).thenThrow(new UserNotFoundException(9l));
+
+		UserService timedService = (UserService) timingBeanPostProcessor
+				.postProcessAfterInitialization(userService, "userServiceImpl");
+
+		assertSame(userFrank, timedService.findById(1l));
+		assertSame(userFrank, timedService.findById(1l));
+		assertThrows(UserNotFoundException.class, () -> timedService.findById(9l));
+
+		assertEquals(2, meterRegistry.get(MetricsConfig.SERVICE_TIMER)
+				.tag("method", "findById").tag("exception", "none").timer().count());
+		assertEquals(1, meterRegistry.get(MetricsConfig.SERVICE_TIMER)
+				.tag("method", "findById").tag("exception", "UserNotFoundException").timer().count());
+	}
+
+	@Test
+	void otherBeansShouldNotBeProxied() {
+		Object bean = new Object();
+
+		assertSame(bean, timingBeanPostProcessor.postProcessAfterInitialization(bean, "other"));
+	}
+
+}
@@ -0,0 +1,73 @@
+package com.faceit.demo.repo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.faceit.demo.exception.InvalidRequestException;
+import com.faceit.demo.util.SpecSearchCriteria;
+
+public class SearchCriteriaParserTest {
+	
+	@Test
+	public void givenCommaSeparatedCriteria_whenParsed_thenEveryCriterionIsReturnedInOrder() {
+		List<SpecSearchCriteria> criteria = SearchCriteriaParser.parse("country:England,nickName!Super Frank");
+		
+		assertEquals(2, criteria.size());
+		assertEquals("country", criteria.get(0).getKey());
+		assertEquals(":", criteria.get(0).getOperation());
+		assertEquals("England", criteria.get(0).getValue());
+		assertEquals("nickName", criteria.get(1).getKey());
+		assertEquals("!", criteria.get(1).getOperation());
+		assertEquals("Super Frank", criteria.get(1).getValue());
+	}
+	
+	@Test
+	public void givenEquivalentCriteria_whenNormalized_thenTheyAreEqual() {
+		String normalized = "country:England,firstName:Joe";
+		
+		assertSame(normalized, SearchCriteriaParser.normalize(normalized));
+		assertEquals(normalized, SearchCriteriaParser.normalize(" country:England , firstName:Joe,"));
+		assertEquals(normalized, SearchCriteriaParser.normalize(",country:England,,firstName:Joe "));
+		assertEquals("country:England|country:Spain", SearchCriteriaParser.normalize("country:England | country:Spain"));
+		assertEquals("", SearchCriteriaParser.normalize(" , "));
+	}
+	
+	@Test
+	public void givenMalformedCriteria_whenParsed_thenInvalidRequestIsThrown() {
+		assertThrows(InvalidRequestException.class, () -> SearchCriteriaParser.parse("country"));
+		assertThrows(InvalidRequestException.class, () -> SearchCriteriaParser.parse("country:"));
+		assertThrows(InvalidRequestException.class, () -> SearchCriteriaParser.parse(":England"));
+		assertThrows(InvalidRequestException.class, () -> SearchCriteriaParser.parse("country=England"));
+		assertThrows(InvalidRequestException.class, () -> SearchCriteriaParser.parse("country:England|"));
+	}
+	
+	@Test
+	public void givenOrGroupAndInList_whenParsed_thenValuesAreConvertedToKeyType() {
+		List<SpecSearchCriteria> criteria = SearchCriteriaParser.parse("country:England|id@1;2;3,firstName^Jo");
+		
+		assertEquals(3, criteria.size());
+		assertFalse(criteria.get(0).isOrPredicate());
+		assertTrue(criteria.get(1).isOrPredicate());
+		assertEquals(Arrays.asList(1L, 2L, 3L), criteria.get(1).getValue());
+		assertFalse(criteria.get(2).isOrPredicate());
+		assertEquals("^", criteria.get(2).getOperation());
+	}
+	
+	@Test
+	public void givenUnknownOrUnsearchableKey_whenParsed_thenInvalidRequestIsThrown() {
+		assertThrows(InvalidRequestException.class, () -> SearchCriteriaParser.parse("age>18"));
+		assertThrows(InvalidRequestException.class, () -> SearchCriteriaParser.parse("password:secret"));
+		assertThrows(InvalidRequestException.class, () -> SearchCriteriaParser.parse("id:one"));
+		assertThrows(InvalidRequestException.class, () -> SearchCriteriaParser.parse("id~1"));
+	}
+
+}
@@ -2,11 +2,14 @@ package com.faceit.demo.repo;
 
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.collection.IsIn.in;
 import static org.hamcrest.core.Is.is;
 import static org.hamcrest.core.IsNot.not;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 import org.junit.After;
 import org.junit.Before;
@@ -30,6 +33,12 @@ import com.faceit.demo.util.SpecSearchCriteria;
  * Available {operators} are - 
  * ":" = EQUALS;
  * "!" = IS-NOT;
+ * "^" = STARTS-WITH;
+ * "~" = CONTAINS;
+ * ">" = AT-LEAST;
+ * "<" = AT-MOST;
+ * "@" = IN;
+ * Criteria separated by "|" instead of "," are OR-ed.
  */
 @RunWith(SpringJUnit4ClassRunner.class)
 @Transactional
@@ -39,6 +48,8 @@ public class UserSpecificationIT {
 	
 	private static final String EQUALITY = ":";
 	private static final String NEGATION = "!";
+	private static final String STARTS_WITH = "^";
+	private static final String CONTAINS = "~";
 	
 	@Autowired
     private UserRepository userRepo;
@@ -51,6 +62,10 @@ public class UserSpecificationIT {
 
     @Before
     public void init() {
+    	// Users committed by other tests sharing this context would violate the unique
+    	// email and nickName constraints; the deletion is rolled back with the test.
+    	userRepo.deleteAll();
+    	
     	userFrank = new User("Frank", "Lampard", "Super Frank", "password", "f.lampard@cfc.com", "England");
     	userCesar = new User("Cesar", "Azpilicueta", "Dave", "password", "c.azpi@cfc.com", "Spain");
     	userJohn = new User("John", "Terry", "JT", "password", "j.terry@cfc.com", "England");
@@ -110,4 +125,52 @@ public class UserSpecificationIT {
         assertThat(results.size(), is(1));
     }
 
+    @Test
+    public void givenNickNamePrefix_whenGettingListOfUsers_thenReturnOneUser() {
+        final UserSpecification spec = new UserSpecification(new SpecSearchCriteria("nickName", STARTS_WITH, "Super"));
+        final List<User> results = userRepo.findAll(spec);
+
+        assertThat(userFrank, is(in(results)));
+        assertThat(results.size(), is(1));
+    }
+    
+    @Test
+    public void givenEmailContainsWildcard_whenGettingListOfUsers_thenWildcardIsMatchedLiterally() {
+        final UserSpecification spec1 = new UserSpecification(new SpecSearchCriteria("email", CONTAINS, "@cfc"));
+        final UserSpecification spec2 = new UserSpecification(new SpecSearchCriteria("email", CONTAINS, "_"));
+
+        assertThat(userRepo.findAll(spec1).size(), is(3));
+        assertThat(userRepo.findAll(spec2).size(), is(0));
+    }
+    
+    @Test
+    public void givenOrGroupAndInList_whenGettingListOfUsers_thenReturnMatchingUsers() {
+        final List<User> results = userRepo.findAll(UserSpecificationsBuilder
+        		.parse("country:Spain|nickName:JT,firstName@Cesar;John;Frank").build());
+
+        assertThat(userCesar, is(in(results)));
+        assertThat(userJohn, is(in(results)));
+        assertThat(results.size(), is(2));
+    }
+    
+    @Test
+    public void givenIdRange_whenGettingListOfUsers_thenReturnUsersWithinRange() {
+        final List<User> results = userRepo.findAll(UserSpecificationsBuilder
+        		.parse("id>" + userCesar.getId() + ",id<" + userJohn.getId()).build());
+
+        assertThat(userCesar, is(in(results)));
+        assertThat(userJohn, is(in(results)));
+        assertThat(results.size(), is(2));
+    }
+
+    @Test
+    public void givenFields_whenGettingProjectedUsers_thenReturnOnlyThoseFields() {
+        final UserSpecification spec = new UserSpecification(new SpecSearchCriteria("country", EQUALITY, "Spain"));
+        final List<Map<String, Object>> results = userRepo.findAllProjected(spec, Arrays.asList("nickName", "country"));
+
+        assertThat(results.size(), is(1));
+        assertThat(results.get(0).keySet(), contains("nickName", "country"));
+        assertThat(results.get(0).get("nickName"), is("Dave"));
+    }
+
 }
@@ -1,11 +1,36 @@
 package com.faceit.demo.service;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
@@ -16,9 +41,12 @@ import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
 import org.junit.jupiter.api.TestInstance.Lifecycle;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
 import org.springframework.kafka.listener.ContainerProperties;
 import org.springframework.kafka.listener.KafkaMessageListenerContainer;
@@ -27,9 +55,19 @@ import org.springframework.kafka.test.rule.EmbeddedKafkaRule;
 import org.springframework.kafka.test.utils.KafkaTestUtils;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import com.faceit.demo.cache.UserCache;
 import com.faceit.demo.entity.User;
 import com.faceit.demo.event.EventPublisher;
+import com.faceit.demo.event.Events;
+import com.faceit.demo.exception.InvalidRequestException;
+import com.faceit.demo.exception.UserNotFoundException;
 import com.faceit.demo.repo.UserRepository;
+import com.faceit.demo.util.BulkItemResult;
+import com.faceit.demo.util.BulkItemResult.Status;
+import com.faceit.demo.util.CursorPage;
+import com.faceit.demo.util.UserBatch;
+
+import io.micrometer.core.instrument.MeterRegistry;
 
 @TestInstance(Lifecycle.PER_CLASS)
 @SpringBootTest
@@ -42,6 +80,12 @@ public class UserServiceTest {
 	
 	@Autowired EventPublisher eventPublisher;
 	
+	@Autowired MeterRegistry meterRegistry;
+	
+	@Autowired UserCache userCache;
+	
+	private static final int CALLERS = 8;
+	
 	@Value("${kafka.topic}")
 	private String TOPIC_NAME;
 	
@@ -105,6 +149,22 @@ public class UserServiceTest {
 	    assertEquals(resultSecondUser.getCountry(), userJohn.getCountry());
     }
 	
+	@Test
+    public void givenMoreUsersThanListAllMaxSize_whenFindAllUsers_thenRequestIsRefused() {
+		
+		Object maxSize = ReflectionTestUtils.getField(userService, "LIST_ALL_MAX_SIZE");
+		ReflectionTestUtils.setField(userService, "LIST_ALL_MAX_SIZE", 2);
+		try {
+			assertThrows(InvalidRequestException.class, () -> userService.findAll());
+			assertThrows(InvalidRequestException.class, () -> userService.findAll("id,nickName"));
+			
+			ReflectionTestUtils.setField(userService, "LIST_ALL_MAX_SIZE", 3);
+			assertEquals(3, userService.findAll("id,nickName").size());
+		} finally {
+			ReflectionTestUtils.setField(userService, "LIST_ALL_MAX_SIZE", maxSize);
+		}
+    }
+	
 	@Test
     public void givenValiduserId_whenFindUserById_thenUserWithIdShouldBeReturned() {
 		
@@ -118,6 +178,256 @@ public class UserServiceTest {
 	    assertEquals(resultUser.getCountry(), userCesar.getCountry());
     }
 	
+	@Test
+    public void givenCachedUser_whenUserUpdated_thenNextFindByIdReloadsUser() {
+		
+	    userService.findById(2l);
+	    User cachedUser = userCache.getIfPresent(2l);
+	    assertNotNull(cachedUser);
+	    
+	    userService.update(new User(2l, userCesar.getFirstName(), userCesar.getLastName(),
+	    		userCesar.getNickName(), userCesar.getPassword(), userCesar.getEmail(), userCesar.getCountry()));
+	    assertNull(userCache.getIfPresent(2l));
+	    
+	    User reloadedUser = userService.findById(2l);
+	    assertNotSame(cachedUser, userCache.getIfPresent(2l));
+	    assertEquals(userCesar.getNickName(), reloadedUser.getNickName());
+    }
+	
+	@Test
+    public void givenCachedUser_whenCallerChangesFoundUser_thenCachedUserIsUnchanged() {
+		
+	    User foundUser = userService.findById(1l);
+	    assertNotSame(userCache.getIfPresent(1l), foundUser);
+	    
+	    foundUser.setNickName("Frankie");
+	    assertEquals(userFrank.getNickName(), userService.findById(1l).getNickName());
+	    assertEquals(userFrank.getNickName(), userCache.getIfPresent(1l).getNickName());
+    }
+	
+	@Test
+    public void givenStaleVersionInBody_whenUserUpdated_thenPersistedUserIsReturned() {
+		
+	    long version = userRepo.findById(3l).get().getVersion();
+	    User body = new User(3l, userJohn.getFirstName(), userJohn.getLastName(),
+	    		userJohn.getNickName(), userJohn.getPassword(), userJohn.getEmail(), userJohn.getCountry());
+	    body.setVersion(version + 10);
+	    
+	    User updatedUser = userService.update(body);
+	    
+	    assertNotSame(body, updatedUser);
+	    assertEquals(Long.valueOf(version + 1), updatedUser.getVersion());
+	    assertEquals(userRepo.findById(3l).get().getVersion(), updatedUser.getVersion());
+	    assertEquals(userJohn.getEmail(), updatedUser.getEmail());
+    }
+	
+	@Test
+    public void givenPageLimit_whenFollowingNextCursor_thenAllUsersAreReturnedOnce() {
+		
+		CursorPage<User> firstPage = userService.findPage(null, 2);
+		assertEquals(2, firstPage.getContent().size());
+		assertEquals(userFrank.getNickName(), firstPage.getContent().get(0).getNickName());
+		assertNotNull(firstPage.getNextCursor());
+		
+		CursorPage<User> lastPage = userService.findPage(firstPage.getNextCursor(), 2);
+		assertEquals(1, lastPage.getContent().size());
+		assertEquals(userJohn.getNickName(), lastPage.getContent().get(0).getNickName());
+		assertNull(lastPage.getNextCursor());
+    }
+	
+	@Test
+    public void givenKnownAndUnknownIds_whenFindAllById_thenUsersInRequestOrderAndMissingIds() {
+		
+		userService.findById(1l);
+		
+		UserBatch batch = userService.findAllById(Arrays.asList(3l, 99l, 1l, 3l));
+		
+		assertEquals(2, batch.getUsers().size());
+		assertEquals(userJohn.getNickName(), batch.getUsers().get(0).getNickName());
+		assertEquals(userFrank.getNickName(), batch.getUsers().get(1).getNickName());
+		assertNotSame(userCache.getIfPresent(1l), batch.getUsers().get(1));
+		assertEquals(Arrays.asList(99l), batch.getMissingIds());
+    }
+	
+	@Test
+    public void givenMoreUsersThanJdbcBatch_whenCreateAll_thenUsersAreCreatedAndEventsPublishedPerBatch() {
+		
+		List<User> users = new ArrayList<>();
+		for (int i = 0; i < 120; i++) {
+			users.add(new User("Bulk", "User", "bulk" + i, "password", "bulk" + i + "@cfc.com", "England"));
+		}
+		users.add(10, null);
+		users.add(20, new User(7l, "Juan", "Mata", "JM", "password", "j.mata@cfc.com", "Spain"));
+		
+		EventPublisher publisher = mock(EventPublisher.class);
+		ReflectionTestUtils.setField(userService, "eventPublisher", publisher);
+		List<BulkItemResult> results;
+		try {
+			results = userService.createAll(users);
+		} finally {
+			ReflectionTestUtils.setField(userService, "eventPublisher", eventPublisher);
+		}
+		
+		assertEquals(122, results.size());
+		assertEquals(Status.REJECTED, results.get(10).getStatus());
+		assertEquals(Status.REJECTED, results.get(20).getStatus());
+		assertEquals(7l, results.get(20).getId());
+		List<Long> createdIds = results.stream().filter(result -> result.getStatus() == Status.CREATED)
+				.map(BulkItemResult::getId).collect(Collectors.toList());
+		assertEquals(120, createdIds.size());
+		assertEquals(120, userRepo.findAllById(createdIds).size());
+		
+		// One flush of users and events per JDBC batch of 50
+		@SuppressWarnings("unchecked")
+		ArgumentCaptor<Collection<User>> published = ArgumentCaptor.forClass(Collection.class);
+		verify(publisher, times(3)).publishEvents(eq(Events.USER_CREATED), published.capture());
+		assertEquals(Arrays.asList(50, 50, 20),
+				published.getAllValues().stream().map(Collection::size).collect(Collectors.toList()));
+		assertEquals(createdIds, published.getAllValues().stream().flatMap(Collection::stream)
+				.map(User::getId).collect(Collectors.toList()));
+		
+		userRepo.deleteAll(userRepo.findAllById(createdIds));
+    }
+	
+	@Test
+    public void givenDuplicateEmailOrNickName_whenCreateAll_thenOnlyDuplicatesAreRejected() {
+		
+		List<BulkItemResult> results = userService.createAll(Arrays.asList(
+				new User("Mason", "Mount", "MM", "password", "m.mount@cfc.com", "England"),
+				new User("Mateo", "Kovacic", "MM", "password", "m.kovacic@cfc.com", "Croatia"),
+				new User("Frank", "Lampard", "FL", "password", userFrank.getEmail(), "England"),
+				new User("Reece", "James", "RJ", "password", "r.james@cfc.com", "England")));
+		
+		assertEquals(Arrays.asList(Status.CREATED, Status.REJECTED, Status.REJECTED, Status.CREATED),
+				results.stream().map(BulkItemResult::getStatus).collect(Collectors.toList()));
+		assertEquals("Nick name 'MM' is already taken", results.get(1).getMessage());
+		assertEquals("Email '" + userFrank.getEmail() + "' is already taken", results.get(2).getMessage());
+		assertEquals(5, userRepo.count());
+		
+		userRepo.deleteById(results.get(0).getId());
+		userRepo.deleteById(results.get(3).getId());
+    }
+	
+	@Test
+    public void givenEmailOfAnotherUser_whenUpdateAll_thenOnlyThatUserIsRejected() {
+		
+		List<BulkItemResult> results = userService.updateAll(Arrays.asList(
+				new User(2l, userCesar.getFirstName(), userCesar.getLastName(), userCesar.getNickName(),
+						userCesar.getPassword(), userFrank.getEmail(), userCesar.getCountry()),
+				new User(3l, userJohn.getFirstName(), userJohn.getLastName(), userJohn.getNickName(),
+						userJohn.getPassword(), userJohn.getEmail(), userJohn.getCountry())));
+		
+		assertEquals(Arrays.asList(Status.REJECTED, Status.UPDATED),
+				results.stream().map(BulkItemResult::getStatus).collect(Collectors.toList()));
+		assertEquals(userCesar.getEmail(), userRepo.findById(2l).get().getEmail());
+    }
+	
+	@Test
+    public void givenExistingMissingAndNullIds_whenRemoveAllById_thenOnlyExistingUsersAreDeleted() {
+		
+		User userMason = userRepo.save(new User("Mason", "Mount", "MM", "password", "m.mount@cfc.com", "England"));
+		User userReece = userRepo.save(new User("Reece", "James", "RJ", "password", "r.james@cfc.com", "England"));
+		
+		EventPublisher publisher = mock(EventPublisher.class);
+		ReflectionTestUtils.setField(userService, "eventPublisher", publisher);
+		List<BulkItemResult> results;
+		try {
+			results = userService.removeAllById(
+					Arrays.asList(userMason.getId(), 99l, null, userReece.getId(), userMason.getId()));
+		} finally {
+			ReflectionTestUtils.setField(userService, "eventPublisher", eventPublisher);
+		}
+		
+		assertEquals(Arrays.asList(Status.DELETED, Status.NOT_FOUND, Status.REJECTED, Status.DELETED, Status.DELETED),
+				results.stream().map(BulkItemResult::getStatus).collect(Collectors.toList()));
+		assertEquals(99l, results.get(1).getId());
+		assertFalse(userRepo.existsById(userMason.getId()));
+		assertFalse(userRepo.existsById(userReece.getId()));
+		assertEquals(3, userRepo.count());
+		
+		// One call for all deleted users, each of them once
+		verify(publisher).publishEventsById(Events.USER_DELETED,
+				new LinkedHashSet<>(Arrays.asList(userMason.getId(), userReece.getId())));
+		verify(publisher, never()).publishEvent(eq(Events.USER_DELETED), ArgumentMatchers.anyLong());
+    }
+	
+	@Test
+    public void givenConcurrentLookupsOfMissingId_whenFindById_thenOneRepositoryQueryIsShared() throws Exception {
+		
+		UserRepository slowRepo = mock(UserRepository.class);
+		CountDownLatch release = new CountDownLatch(1);
+		when(slowRepo.findByIdOnPrimary(404l)).thenAnswer(invocation -> {
+			release.await(10, TimeUnit.SECONDS);
+			return Optional.empty();
+		});
+		double coalesced = coalescedCount("findById");
+		
+		List<Future<User>> lookups = callConcurrently(slowRepo, release, "findById", () -> userService.findById(404l));
+		
+		for (Future<User> lookup : lookups) {
+			ExecutionException ex = assertThrows(ExecutionException.class, () -> lookup.get());
+			assertTrue(ex.getCause() instanceof UserNotFoundException);
+		}
+		verify(slowRepo, times(1)).findByIdOnPrimary(404l);
+		assertEquals(coalesced + CALLERS - 1, coalescedCount("findById"));
+    }
+	
+	@Test
+    public void givenConcurrentIdenticalSearches_whenSearch_thenOneRepositoryQueryAndResultAreShared() throws Exception {
+		
+		UserRepository slowRepo = mock(UserRepository.class);
+		CountDownLatch release = new CountDownLatch(1);
+		when(slowRepo.findAll(ArgumentMatchers.<Specification<User>>any())).thenAnswer(invocation -> {
+			release.await(10, TimeUnit.SECONDS);
+			return new ArrayList<>(Arrays.asList(userFrank, userJohn));
+		});
+		double coalesced = coalescedCount("search");
+		
+		List<Future<Iterable<User>>> searches = callConcurrently(slowRepo, release, "search",
+				() -> userService.search("country:England"));
+		
+		Iterable<User> shared = searches.get(0).get();
+		for (Future<Iterable<User>> search : searches) {
+			assertSame(shared, search.get());
+		}
+		assertThrows(UnsupportedOperationException.class, () -> ((List<User>) shared).add(userCesar));
+		verify(slowRepo, times(1)).findAll(ArgumentMatchers.<Specification<User>>any());
+		assertEquals(coalesced + CALLERS - 1, coalescedCount("search"));
+    }
+	
+	/*
+	 * Runs the call on CALLERS threads against the given repository, and releases the
+	 * repository once every caller but the first has joined the call in flight.
+	 */
+	private <T> List<Future<T>> callConcurrently(UserRepository slowRepo, CountDownLatch release,
+			String operation, Callable<T> call) throws InterruptedException {
+		double joined = coalescedCount(operation) + CALLERS - 1;
+		ExecutorService callers = Executors.newFixedThreadPool(CALLERS);
+		ReflectionTestUtils.setField(userService, "userRepo", slowRepo);
+		try {
+			List<Future<T>> results = new ArrayList<>();
+			for (int i = 0; i < CALLERS; i++) {
+				results.add(callers.submit(call));
+			}
+			long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+			while (coalescedCount(operation) < joined && System.currentTimeMillis() < deadline) {
+				Thread.sleep(10);
+			}
+			release.countDown();
+			callers.shutdown();
+			callers.awaitTermination(10, TimeUnit.SECONDS);
+			return results;
+		} finally {
+			release.countDown();
+			callers.shutdownNow();
+			ReflectionTestUtils.setField(userService, "userRepo", userRepo);
+		}
+	}
+	
+	private double coalescedCount(String operation) {
+		return meterRegistry.get("user.reads.coalesced").tag("operation", operation).functionCounter().count();
+	}
+	
 	/*
 	 * TODO: More unit tests to follow.
 	 * 
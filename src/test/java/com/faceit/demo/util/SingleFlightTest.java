@@ -0,0 +1,78 @@
+package com.faceit.demo.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.faceit.demo.exception.UserNotFoundException;
+
+public class SingleFlightTest {
+
+	private static final int CALLERS = 8;
+
+	@Test
+	void concurrentCallsWithEqualKeysShouldShareOneCall() throws Exception {
+		SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+		AtomicInteger calls = new AtomicInteger();
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService callers = Executors.newFixedThreadPool(CALLERS);
+		try {
+			List<Future<Integer>> results = new ArrayList<>();
+			results.add(callers.submit(() -> singleFlight.execute("key", () -> {
+				started.countDown();
+				awaitQuietly(release);
+				return calls.incrementAndGet();
+			})));
+			started.await(10, TimeUnit.SECONDS);
+			for (int i = 1; i < CALLERS; i++) {
+				results.add(callers.submit(() -> singleFlight.execute("key", calls::incrementAndGet)));
+			}
+			// Release the call once every follower has joined it
+			long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+			while (singleFlight.coalescedCount() < CALLERS - 1 && System.currentTimeMillis() < deadline) {
+				Thread.sleep(10);
+			}
+			release.countDown();
+
+			for (Future<Integer> result : results) {
+				assertEquals(1, result.get(10, TimeUnit.SECONDS));
+			}
+			assertEquals(1, calls.get());
+			assertEquals(CALLERS - 1, singleFlight.coalescedCount());
+			assertEquals(2, singleFlight.execute("key", calls::incrementAndGet));
+		} finally {
+			release.countDown();
+			callers.shutdownNow();
+		}
+	}
+
+	@Test
+	void exceptionShouldBeRethrownAndNotKept() {
+		SingleFlight<Long, String> singleFlight = new SingleFlight<>();
+
+		assertThrows(UserNotFoundException.class, () -> singleFlight.execute(1l, () -> {
+			throw new UserNotFoundException(1l);
+		}));
+		assertEquals("found", singleFlight.execute(1l, () -> "found"));
+	}
+
+	private static void awaitQuietly(CountDownLatch latch) {
+		try {
+			latch.await(10, TimeUnit.SECONDS);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}